@@ -0,0 +1,177 @@
+package com.berwin.cocoadialog.benchmark;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ListView;
+
+import com.berwin.cocoadialog.CocoaDialog;
+import com.berwin.cocoadialog.CocoaDialogAction;
+import com.berwin.cocoadialog.CocoaDialogActionStyle;
+import com.berwin.cocoadialog.CocoaDialogStyle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the latency of searching a searchable action sheet of 50k actions, from setting the text of the search field
+ * to the filtered list being updated, for every keystroke of a few typed queries. The same queries are also filtered
+ * naively by {@link String#contains(CharSequence)} over every title for comparison, and the counts of the results are checked
+ * against a brute-force match.
+ *
+ * <p>Warm-up and measured iterations are set as in {@link CocoaDialogBenchmark}, the results are written as JSON to the file
+ * of the {@code benchmark.searchOutput} system property.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ActionSearchBenchmark {
+
+    private static final int ACTION_COUNT = 50000;
+    private static final String[] WORDS = {"open", "save", "share", "copy", "move", "rename", "delete", "print",
+            "export", "archive", "sync", "upload", "download", "settings", "photo", "album", "拍照", "从相册选择"};
+    private static final String[] QUERIES = {"save", "share ph", "相册", "12345"};
+
+    @Test
+    public void benchmark() throws IOException, ExecutionException, InterruptedException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        int warmup = Integer.getInteger("benchmark.warmup", 5);
+        int iterations = Integer.getInteger("benchmark.iterations", 20);
+        List<String> titles = newTitles();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CocoaDialog.Builder builder = new CocoaDialog.Builder(activity, CocoaDialogStyle.actionSheet)
+                    .setActionSearchExecutor(executor)
+                    .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+            for (String title : titles) {
+                builder.addAction(new CocoaDialogAction(title, CocoaDialogActionStyle.normal, null));
+            }
+            long start = System.nanoTime();
+            CocoaDialog dialog = builder.build();
+            dialog.show();
+            await(executor);
+            long indexNanos = System.nanoTime() - start;
+            View decorView = dialog.getWindow().getDecorView();
+            EditText searchField = BenchmarkViews.find(decorView, EditText.class);
+            ListView listView = BenchmarkViews.find(decorView, ListView.class);
+            assertNotNull(searchField);
+            assertNotNull(listView);
+
+            BenchmarkReport report = new BenchmarkReport();
+            report.add(String.format(Locale.US, "{\"phase\":\"buildAndIndex\",\"titles\":%d,\"nanos\":%d}", ACTION_COUNT, indexNanos));
+            long naiveMatches = 0;
+            for (String query : QUERIES) {
+                long[] indexed = new long[iterations];
+                long[] naive = new long[iterations];
+                for (int i = 0; i < warmup + iterations; i++) {
+                    searchField.setText(null);
+                    await(executor);
+                    long indexedNanos = 0;
+                    long naiveNanos = 0;
+                    // 逐字输入，累计每次按键到列表更新的耗时
+                    for (int length = 1; length <= query.length(); length++) {
+                        String typed = query.substring(0, length);
+                        long keyStart = System.nanoTime();
+                        searchField.setText(typed);
+                        await(executor);
+                        indexedNanos += System.nanoTime() - keyStart;
+                        keyStart = System.nanoTime();
+                        naiveMatches += filterNaively(titles, typed);
+                        naiveNanos += System.nanoTime() - keyStart;
+                        if (i == 0) {
+                            assertEquals(typed, bruteForceCount(titles, typed), listView.getAdapter().getCount());
+                        }
+                    }
+                    if (i >= warmup) {
+                        indexed[i - warmup] = indexedNanos / query.length();
+                        naive[i - warmup] = naiveNanos / query.length();
+                    }
+                }
+                report.add(result(query, "indexed", indexed));
+                report.add(result(query, "naive", naive));
+            }
+            assertTrue(naiveMatches > 0);
+            dialog.dismiss();
+            report.writeTo("benchmark.searchOutput");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> newTitles() {
+        Random random = new Random(42);
+        List<String> titles = new ArrayList<>(ACTION_COUNT);
+        for (int i = 0; i < ACTION_COUNT; i++) {
+            titles.add(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " #" + i);
+        }
+        return titles;
+    }
+
+    /**
+     * Wait for the queued searches to finish on the executor and apply their results on the main thread.
+     */
+    private static void await(ExecutorService executor) throws ExecutionException, InterruptedException {
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static int filterNaively(List<String> titles, String query) {
+        String lowerCase = query.toLowerCase(Locale.ROOT);
+        int count = 0;
+        for (String title : titles) {
+            if (title.toLowerCase(Locale.ROOT).contains(lowerCase)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the titles in which every word of the query starts a word, or starts at a Chinese character.
+     */
+    private static int bruteForceCount(List<String> titles, String query) {
+        String[] words = query.toLowerCase(Locale.ROOT).trim().split("[^\\p{L}\\p{Nd}]+");
+        int count = 0;
+        for (String title : titles) {
+            String lowerCase = title.toLowerCase(Locale.ROOT);
+            boolean matched = true;
+            for (String word : words) {
+                boolean found = false;
+                for (int i = lowerCase.indexOf(word); i >= 0 && !found; i = lowerCase.indexOf(word, i + 1)) {
+                    found = i == 0 || !Character.isLetterOrDigit(lowerCase.charAt(i - 1))
+                            || Character.getType(lowerCase.charAt(i)) == Character.OTHER_LETTER;
+                }
+                matched &= found;
+            }
+            if (matched) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String result(String query, String method, long[] samples) {
+        return String.format(Locale.US, "{\"phase\":\"query\",\"titles\":%d,\"query\":\"%s\",\"method\":\"%s\",%s}",
+                ACTION_COUNT, query, method, BenchmarkReport.summary(samples));
+    }
+}
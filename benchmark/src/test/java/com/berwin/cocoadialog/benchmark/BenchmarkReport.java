@@ -0,0 +1,83 @@
+package com.berwin.cocoadialog.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects the JSON results of a benchmark and writes them as one JSON array.
+ */
+final class BenchmarkReport {
+
+    private final List<String> mResults = new ArrayList<>();
+
+    /**
+     * Format the statistics of the samples as JSON members, to be embedded in a result.
+     *
+     * @param samples The measured durations in nanoseconds.
+     * @return The iterations, mean, median, p90, min and max members.
+     */
+    static String summary(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        int iterations = sorted.length;
+        return String.format(Locale.US, "\"iterations\":%d,\"meanNanos\":%d,\"medianNanos\":%d,\"p90Nanos\":%d,\"minNanos\":%d,\"maxNanos\":%d",
+                iterations, sum / iterations, sorted[iterations / 2], sorted[(int) Math.ceil(iterations * 0.9) - 1], sorted[0], sorted[iterations - 1]);
+    }
+
+    /**
+     * Add a result and print it.
+     *
+     * @param result A JSON object.
+     */
+    void add(String result) {
+        System.out.println(result);
+        mResults.add(result);
+    }
+
+    boolean isEmpty() {
+        return mResults.isEmpty();
+    }
+
+    /**
+     * Write the results to the file of the given system property, nothing is written if it is not set.
+     *
+     * @param property The name of the system property.
+     */
+    void writeTo(String property) throws IOException {
+        String output = System.getProperty(property);
+        if (output != null) {
+            write(new File(output));
+        }
+    }
+
+    /**
+     * Write the results to the given file, creating its directory if needed.
+     *
+     * @param file The output file.
+     */
+    void write(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can not create the directory " + parent);
+        }
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("[\n");
+            for (int i = 0; i < mResults.size(); i++) {
+                writer.write("  ");
+                writer.write(mResults.get(i));
+                writer.write(i == mResults.size() - 1 ? "\n" : ",\n");
+            }
+            writer.write("]\n");
+        }
+    }
+}
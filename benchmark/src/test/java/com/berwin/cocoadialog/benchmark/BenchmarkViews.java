@@ -0,0 +1,32 @@
+package com.berwin.cocoadialog.benchmark;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * View lookups shared by the benchmarks.
+ */
+final class BenchmarkViews {
+
+    private BenchmarkViews() {
+    }
+
+    /**
+     * Find the first view of the given type in the hierarchy, depth first.
+     */
+    static <T extends View> T find(View view, Class<T> type) {
+        if (type.isInstance(view)) {
+            return type.cast(view);
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                T found = find(group.getChildAt(i), type);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.berwin.cocoadialog.benchmark;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.berwin.cocoadialog.CocoaDialog;
+import com.berwin.cocoadialog.CocoaDialogAction;
+import com.berwin.cocoadialog.CocoaDialogActionStyle;
+import com.berwin.cocoadialog.CocoaDialogStyle;
+import com.berwin.cocoadialog.CocoaDialogViewPool;
+import com.berwin.cocoadialog.EditTextConfigurationHandler;
+import com.berwin.cocoadialog.ProgressBarBuildHandler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Measures the cost of building, inflating, measuring and laying out a {@link CocoaDialog} for every
+ * {@link CocoaDialogStyle} across several counts of actions, with and without edit texts or a progress bar.
+ *
+ * <p>Each scenario runs a number of warm-up iterations followed by the measured iterations, set by the
+ * {@code benchmark.warmup} and {@code benchmark.iterations} system properties. The results are written as JSON
+ * to the file of the {@code benchmark.output} system property. Run with {@code ./gradlew :benchmark:benchmark}.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class CocoaDialogBenchmark {
+
+    private static final int[] ACTION_COUNTS = {1, 2, 3, 10, 100};
+    private static final String[] PHASES = {"build", "inflate", "measure", "layout"};
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+
+    private enum Inputs {
+        none, editTexts, progressBar
+    }
+
+    @Test
+    public void benchmark() throws IOException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        int warmup = Integer.getInteger("benchmark.warmup", 5);
+        int iterations = Integer.getInteger("benchmark.iterations", 20);
+        BenchmarkReport report = new BenchmarkReport();
+        for (CocoaDialogStyle style : CocoaDialogStyle.values()) {
+            for (Inputs inputs : Inputs.values()) {
+                // 输入框和进度条仅支持alert样式，custom样式不显示按钮
+                if (inputs != Inputs.none && style != CocoaDialogStyle.alert) {
+                    continue;
+                }
+                int[] actionCounts = style == CocoaDialogStyle.custom ? new int[]{0} : ACTION_COUNTS;
+                for (int actionCount : actionCounts) {
+                    run(report, activity, style, actionCount, inputs, warmup, iterations);
+                }
+            }
+        }
+        assertFalse(report.isEmpty());
+        report.writeTo("benchmark.output");
+    }
+
+    private void run(BenchmarkReport report, Activity activity, CocoaDialogStyle style, int actionCount, Inputs inputs, int warmup, int iterations) {
+        long[][] samples = new long[PHASES.length][iterations];
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.AT_MOST);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.AT_MOST);
+        for (int i = 0; i < warmup + iterations; i++) {
+            // 清空复用池，测量完整的首次显示开销
+            CocoaDialogViewPool.clear(activity);
+            long start = System.nanoTime();
+            CocoaDialog dialog = newBuilder(activity, style, actionCount, inputs).build();
+            long built = System.nanoTime();
+            dialog.show();
+            long inflated = System.nanoTime();
+            View decorView = dialog.getWindow().getDecorView();
+            decorView.measure(widthSpec, heightSpec);
+            long measured = System.nanoTime();
+            decorView.layout(0, 0, decorView.getMeasuredWidth(), decorView.getMeasuredHeight());
+            long laidOut = System.nanoTime();
+            dialog.dismiss();
+            if (i >= warmup) {
+                int index = i - warmup;
+                samples[0][index] = built - start;
+                samples[1][index] = inflated - built;
+                samples[2][index] = measured - inflated;
+                samples[3][index] = laidOut - measured;
+            }
+        }
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            report.add(String.format(Locale.US, "{\"style\":\"%s\",\"actions\":%d,\"inputs\":\"%s\",\"phase\":\"%s\",%s}",
+                    style, actionCount, inputs, PHASES[phase], BenchmarkReport.summary(samples[phase])));
+        }
+    }
+
+    private static CocoaDialog.Builder newBuilder(Context context, CocoaDialogStyle style, int actionCount, Inputs inputs) {
+        CocoaDialog.Builder builder = new CocoaDialog.Builder(context, style);
+        if (style == CocoaDialogStyle.custom) {
+            TextView contentView = new TextView(context);
+            contentView.setText("Custom content view");
+            return builder.setCustomContentView(contentView);
+        }
+        builder.setTitle("Title for CocoaDialog").setMessage("This is a message.");
+        for (int i = 0; i < actionCount; i++) {
+            builder.addAction(new CocoaDialogAction("Action " + i, i == 0 ? CocoaDialogActionStyle.cancel : CocoaDialogActionStyle.normal, null));
+        }
+        if (inputs == Inputs.editTexts) {
+            EditTextConfigurationHandler handler = new EditTextConfigurationHandler() {
+                @Override
+                public void onEditTextAdded(EditText editText) {
+                    editText.setHint("Input");
+                }
+            };
+            builder.addEditText(handler).addEditText(handler);
+        } else if (inputs == Inputs.progressBar) {
+            builder.addProgressBar(new ProgressBarBuildHandler() {
+                @Override
+                public ProgressBar build(Context context) {
+                    return new ProgressBar(context, null, android.R.attr.progressBarStyleHorizontal);
+                }
+            });
+        }
+        return builder;
+    }
+}
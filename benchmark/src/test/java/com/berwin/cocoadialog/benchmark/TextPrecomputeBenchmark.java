@@ -0,0 +1,149 @@
+package com.berwin.cocoadialog.benchmark;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.UnderlineSpan;
+import android.view.View;
+import android.widget.TextView;
+
+import com.berwin.cocoadialog.CocoaDialog;
+import com.berwin.cocoadialog.CocoaDialogAction;
+import com.berwin.cocoadialog.CocoaDialogActionStyle;
+import com.berwin.cocoadialog.CocoaDialogStyle;
+import com.berwin.cocoadialog.CocoaDialogViewPool;
+import com.berwin.cocoadialog.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the main thread time to the first frame of an alert with a 10 KB span-heavy message: showing the dialog,
+ * measuring, laying out and drawing its window. The message is either laid out on the main thread, or precomputed by
+ * {@link CocoaDialog.Builder#setTextPrecomputeExecutor(java.util.concurrent.Executor)} before the dialog is shown.
+ *
+ * <p>Runs on API 26, where the precomputation warms the layout caches, and on API 28, where the message view is given a
+ * {@link android.text.PrecomputedText}. Warm-up and measured iterations are set as in {@link CocoaDialogBenchmark}, the
+ * results of each API level are written as JSON to {@code text-<sdk>.json} in the directory of the
+ * {@code benchmark.textOutput} system property.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = {26, 28})
+public class TextPrecomputeBenchmark {
+
+    private static final int MESSAGE_LENGTH = 10 * 1024;
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+
+    // 在构建时直接完成预计算，相当于后台任务在显示之前已经结束
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void benchmark() throws IOException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        int warmup = Integer.getInteger("benchmark.warmup", 5);
+        int iterations = Integer.getInteger("benchmark.iterations", 20);
+        CharSequence message = newMessage();
+        BenchmarkReport report = new BenchmarkReport();
+        for (boolean precomputed : new boolean[]{false, true}) {
+            long[] precompute = new long[iterations];
+            long[] firstFrame = new long[iterations];
+            int widthSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.AT_MOST);
+            int heightSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.AT_MOST);
+            Canvas canvas = new Canvas(Bitmap.createBitmap(SCREEN_WIDTH, SCREEN_HEIGHT, Bitmap.Config.ARGB_8888));
+            for (int i = 0; i < warmup + iterations; i++) {
+                CocoaDialogViewPool.clear(activity);
+                long start = System.nanoTime();
+                CocoaDialog dialog = new CocoaDialog.Builder(activity, CocoaDialogStyle.alert)
+                        .setTitle("Terms of Service")
+                        .setMessage(message)
+                        .setTextPrecomputeExecutor(precomputed ? DIRECT_EXECUTOR : null)
+                        .addAction(new CocoaDialogAction("Decline", CocoaDialogActionStyle.cancel, null))
+                        .addAction(new CocoaDialogAction("Accept", CocoaDialogActionStyle.normal, null))
+                        .build();
+                long built = System.nanoTime();
+                dialog.show();
+                View decorView = dialog.getWindow().getDecorView();
+                decorView.measure(widthSpec, heightSpec);
+                decorView.layout(0, 0, decorView.getMeasuredWidth(), decorView.getMeasuredHeight());
+                decorView.draw(canvas);
+                long drawn = System.nanoTime();
+
+                TextView messageText = decorView.findViewById(R.id.message);
+                assertEquals(message.toString(), messageText.getText().toString());
+                if (precomputed && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                    // 参数与TextView不一致时会退回普通文本，这里确认预计算的结果确实交给了TextView
+                    assertTrue("Message is not precomputed: " + messageText.getText().getClass(),
+                            "PrecomputedText".equals(messageText.getText().getClass().getSimpleName()));
+                }
+                dialog.dismiss();
+                if (i >= warmup) {
+                    precompute[i - warmup] = built - start;
+                    firstFrame[i - warmup] = drawn - built;
+                }
+            }
+            String mode = precomputed ? "precomputed" : "mainThread";
+            report.add(String.format(Locale.US, "{\"sdk\":%d,\"text\":\"%s\",\"phase\":\"build\",%s}",
+                    Build.VERSION.SDK_INT, mode, BenchmarkReport.summary(precompute)));
+            report.add(String.format(Locale.US, "{\"sdk\":%d,\"text\":\"%s\",\"phase\":\"firstFrame\",%s}",
+                    Build.VERSION.SDK_INT, mode, BenchmarkReport.summary(firstFrame)));
+        }
+        String output = System.getProperty("benchmark.textOutput");
+        if (output != null) {
+            report.write(new File(output, "text-" + Build.VERSION.SDK_INT + ".json"));
+        }
+    }
+
+    /**
+     * Build a message of about 10 KB, with a style, color, size or underline span on every few words.
+     */
+    private static CharSequence newMessage() {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        int word = 0;
+        while (builder.length() < MESSAGE_LENGTH) {
+            int start = builder.length();
+            builder.append("clause").append(String.valueOf(word)).append(word % 12 == 11 ? ".\n" : " ");
+            switch (word % 8) {
+                case 0:
+                    builder.setSpan(new StyleSpan(Typeface.BOLD), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case 2:
+                    builder.setSpan(new ForegroundColorSpan(0xFF007AFF), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case 4:
+                    builder.setSpan(new RelativeSizeSpan(1.2f), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                case 6:
+                    builder.setSpan(new UnderlineSpan(), start, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                default:
+                    break;
+            }
+            word++;
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,111 @@
+package com.berwin.cocoadialog.benchmark;
+
+import android.app.Activity;
+import android.content.Context;
+import android.widget.ProgressBar;
+
+import com.berwin.cocoadialog.CocoaDialog;
+import com.berwin.cocoadialog.CocoaDialogStyle;
+import com.berwin.cocoadialog.ProgressBarBuildHandler;
+import com.berwin.cocoadialog.TransferProgress;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the time to read a 32 MB local file through an input stream wrapped by {@link TransferProgress}, against
+ * reading the raw stream, with reads of 64 KB.
+ *
+ * <p>Warm-up and measured iterations are set as in {@link CocoaDialogBenchmark}, the results are written as JSON to the file
+ * of the {@code benchmark.transferOutput} system property.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class TransferProgressBenchmark {
+
+    private static final int FILE_SIZE = 32 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Test
+    public void benchmark() throws IOException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        int warmup = Integer.getInteger("benchmark.warmup", 5);
+        int iterations = Integer.getInteger("benchmark.iterations", 20);
+        File file = newFile();
+        CocoaDialog dialog = new CocoaDialog.Builder(activity, CocoaDialogStyle.alert)
+                .setTitle("Download")
+                .setMessage("Downloading")
+                .addProgressBar(new ProgressBarBuildHandler() {
+                    @Override
+                    public ProgressBar build(Context context) {
+                        return new ProgressBar(context, null, android.R.attr.progressBarStyleHorizontal);
+                    }
+                })
+                .build();
+        dialog.show();
+        try {
+            long[] raw = new long[iterations];
+            long[] wrapped = new long[iterations];
+            // 交替读取原始流及包装流，使两者受文件缓存的影响相同
+            for (int i = 0; i < warmup + iterations; i++) {
+                long start = System.nanoTime();
+                try (InputStream in = new FileInputStream(file)) {
+                    assertEquals(FILE_SIZE, drain(in));
+                }
+                long rawNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                try (InputStream in = TransferProgress.bind(dialog, FILE_SIZE).wrap(new FileInputStream(file))) {
+                    assertEquals(FILE_SIZE, drain(in));
+                }
+                long wrappedNanos = System.nanoTime() - start;
+                if (i >= warmup) {
+                    raw[i - warmup] = rawNanos;
+                    wrapped[i - warmup] = wrappedNanos;
+                }
+            }
+            BenchmarkReport report = new BenchmarkReport();
+            report.add(String.format(Locale.US, "{\"stream\":\"raw\",\"bytes\":%d,%s}", FILE_SIZE, BenchmarkReport.summary(raw)));
+            report.add(String.format(Locale.US, "{\"stream\":\"wrapped\",\"bytes\":%d,%s}", FILE_SIZE, BenchmarkReport.summary(wrapped)));
+            report.writeTo("benchmark.transferOutput");
+        } finally {
+            dialog.dismiss();
+            assertTrue(file.delete());
+        }
+    }
+
+    private static File newFile() throws IOException {
+        File file = File.createTempFile("transfer", ".bin");
+        byte[] buffer = new byte[BUFFER_SIZE];
+        new Random(42).nextBytes(buffer);
+        try (OutputStream out = new FileOutputStream(file)) {
+            for (int remaining = FILE_SIZE; remaining > 0; remaining -= buffer.length) {
+                out.write(buffer, 0, Math.min(remaining, buffer.length));
+            }
+        }
+        return file;
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,110 @@
+package com.berwin.cocoadialog.benchmark;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.ListView;
+
+import com.berwin.cocoadialog.CocoaDialog;
+import com.berwin.cocoadialog.CocoaDialogAction;
+import com.berwin.cocoadialog.CocoaDialogActionStyle;
+import com.berwin.cocoadialog.CocoaDialogStyle;
+import com.berwin.cocoadialog.CocoaDialogViewPool;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the time to build and open a virtualized action sheet, built with
+ * {@link CocoaDialog.Builder#setVirtualized(boolean)}, of 10 to 10,000 actions: building the dialog, and showing,
+ * measuring and laying out its window. Only the visible rows are created, so the open time should stay flat as the
+ * count of actions grows, the count of rows created is checked to be independent of the count of actions.
+ *
+ * <p>Warm-up and measured iterations are set as in {@link CocoaDialogBenchmark}, the results of each count of actions
+ * are written as JSON to {@code actions-<count>.json} in the directory of the {@code benchmark.virtualizedOutput}
+ * system property.</p>
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 26)
+public class VirtualizedActionSheetBenchmark {
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+    // 每行按钮高50dp，Robolectric默认密度下一屏最多可见的行数
+    private static final int MAX_VISIBLE_ROWS = SCREEN_HEIGHT / 50 + 2;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "actions = {0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{{10}, {100}, {1000}, {10000}});
+    }
+
+    private final int mActionCount;
+
+    public VirtualizedActionSheetBenchmark(int actionCount) {
+        this.mActionCount = actionCount;
+    }
+
+    @Test
+    public void benchmark() throws IOException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        int warmup = Integer.getInteger("benchmark.warmup", 5);
+        int iterations = Integer.getInteger("benchmark.iterations", 20);
+        CocoaDialog.Builder builder = new CocoaDialog.Builder(activity, CocoaDialogStyle.actionSheet)
+                .setTitle("Title for CocoaDialog")
+                .setVirtualized(true)
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+        for (int i = 0; i < mActionCount; i++) {
+            builder.addAction(new CocoaDialogAction("Action " + i, CocoaDialogActionStyle.normal, null));
+        }
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.AT_MOST);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.AT_MOST);
+        long[] build = new long[iterations];
+        long[] open = new long[iterations];
+        int rowCount = -1;
+        for (int i = 0; i < warmup + iterations; i++) {
+            CocoaDialogViewPool.clear(activity);
+            long start = System.nanoTime();
+            CocoaDialog dialog = builder.build();
+            long built = System.nanoTime();
+            dialog.show();
+            View decorView = dialog.getWindow().getDecorView();
+            decorView.measure(widthSpec, heightSpec);
+            decorView.layout(0, 0, decorView.getMeasuredWidth(), decorView.getMeasuredHeight());
+            long opened = System.nanoTime();
+
+            ListView listView = BenchmarkViews.find(decorView, ListView.class);
+            assertNotNull("The actions are not shown in a list", listView);
+            assertEquals(mActionCount, listView.getAdapter().getCount());
+            if (rowCount < 0) {
+                rowCount = listView.getChildCount();
+            }
+            assertEquals("Rows created differ between opens", rowCount, listView.getChildCount());
+            dialog.dismiss();
+            if (i >= warmup) {
+                build[i - warmup] = built - start;
+                open[i - warmup] = opened - built;
+            }
+        }
+        assertTrue(rowCount + " rows created for " + mActionCount + " actions", rowCount <= Math.min(mActionCount, MAX_VISIBLE_ROWS));
+
+        BenchmarkReport report = new BenchmarkReport();
+        report.add(String.format(Locale.US, "{\"actions\":%d,\"phase\":\"build\",%s}", mActionCount, BenchmarkReport.summary(build)));
+        report.add(String.format(Locale.US, "{\"actions\":%d,\"phase\":\"open\",\"rows\":%d,%s}", mActionCount, rowCount, BenchmarkReport.summary(open)));
+        String output = System.getProperty("benchmark.virtualizedOutput");
+        if (output != null) {
+            report.write(new File(output, "actions-" + mActionCount + ".json"));
+        }
+    }
+}
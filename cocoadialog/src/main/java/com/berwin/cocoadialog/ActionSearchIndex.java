@@ -0,0 +1,286 @@
+package com.berwin.cocoadialog;
+
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable prefix index of the action titles of a searchable action sheet, built once on a background thread.
+ *
+ * <p>Every title is split into tokens at the characters that are neither letters nor digits, and every position of an
+ * ideographic character starts a token as well, so a query matches the middle of a Chinese title. The tokens of all
+ * titles are kept in one sorted array, the titles matching a query token are then one contiguous range found by binary
+ * search. A title matches a query when every query token is a prefix of one of its tokens, case-insensitively.</p>
+ *
+ * <p>A query extending the previous one is narrowed incrementally: the range of a longer prefix lies within the range of
+ * the shorter one, so only that range is searched again.</p>
+ */
+final class ActionSearchIndex {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final int mTitleCount;
+    // 按字典序排列的词元及其所属标题的下标
+    private final String[] mTokens;
+    private final int[] mOwners;
+
+    private ActionSearchIndex(int titleCount, String[] tokens, int[] owners) {
+        this.mTitleCount = titleCount;
+        this.mTokens = tokens;
+        this.mOwners = owners;
+    }
+
+    /**
+     * Build the index of the given titles, may be called from any thread.
+     *
+     * @param titles The titles in the order of the actions, a null title matches no query.
+     * @return {@link ActionSearchIndex} instance.
+     */
+    static ActionSearchIndex build(List<? extends CharSequence> titles) {
+        final List<String> tokens = new ArrayList<>(titles.size() * 2);
+        List<Integer> owners = new ArrayList<>(titles.size() * 2);
+        for (int i = 0; i < titles.size(); i++) {
+            CharSequence title = titles.get(i);
+            if (title == null) {
+                continue;
+            }
+            String normalized = normalize(title);
+            int runEnd = 0;
+            for (int start = 0; start < normalized.length(); start++) {
+                if (!isTokenStart(normalized, start)) {
+                    continue;
+                }
+                if (start >= runEnd) {
+                    runEnd = start;
+                    while (runEnd < normalized.length() && Character.isLetterOrDigit(normalized.charAt(runEnd))) {
+                        runEnd++;
+                    }
+                }
+                tokens.add(normalized.substring(start, runEnd));
+                owners.add(i);
+            }
+        }
+        Integer[] order = new Integer[tokens.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return tokens.get(a).compareTo(tokens.get(b));
+            }
+        });
+        String[] sortedTokens = new String[order.length];
+        int[] sortedOwners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedTokens[i] = tokens.get(order[i]);
+            sortedOwners[i] = owners.get(order[i]);
+        }
+        return new ActionSearchIndex(titles.size(), sortedTokens, sortedOwners);
+    }
+
+    /**
+     * Find the titles matching the query, may be called from any thread.
+     *
+     * @param query    The text typed by the user.
+     * @param previous The result of an earlier query on this index to narrow from, or null.
+     * @return The result, its positions are null if the query has no token and every title matches.
+     */
+    Result query(String query, Result previous) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0) {
+            return new Result(this, tokens, new int[0], new int[0], null);
+        }
+        if (previous != null && previous.mIndex != this) {
+            previous = null;
+        }
+        int[] starts = new int[tokens.length];
+        int[] ends = new int[tokens.length];
+        int smallest = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            int lo = 0;
+            int hi = mTokens.length;
+            if (previous != null && i < previous.mTokens.length && tokens[i].startsWith(previous.mTokens[i])) {
+                // 更长的前缀对应的区间必然包含在较短前缀的区间内
+                lo = previous.mStarts[i];
+                hi = previous.mEnds[i];
+            }
+            starts[i] = lowerBound(tokens[i], lo, hi);
+            ends[i] = prefixEnd(tokens[i], starts[i], hi);
+            if (ends[i] - starts[i] < ends[smallest] - starts[smallest]) {
+                smallest = i;
+            }
+        }
+        long[] matches = collectOwners(starts[smallest], ends[smallest]);
+        for (int i = 0; i < tokens.length; i++) {
+            if (i != smallest) {
+                long[] owners = collectOwners(starts[i], ends[i]);
+                for (int w = 0; w < matches.length; w++) {
+                    matches[w] &= owners[w];
+                }
+            }
+        }
+        int count = 0;
+        for (long word : matches) {
+            count += Long.bitCount(word);
+        }
+        int[] positions = new int[count];
+        int next = 0;
+        for (int w = 0; w < matches.length; w++) {
+            long word = matches[w];
+            while (word != 0) {
+                positions[next++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return new Result(this, tokens, starts, ends, positions);
+    }
+
+    /**
+     * @return The index of the first token not less than the given one in [lo, hi).
+     */
+    private int lowerBound(String token, int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mTokens[mid].compareTo(token) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return The index of the first token in [lo, hi) not starting with the prefix, the tokens from lo must not be less than it.
+     */
+    private int prefixEnd(String prefix, int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mTokens[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private long[] collectOwners(int start, int end) {
+        long[] owners = new long[(mTitleCount + 63) >>> 6];
+        for (int i = start; i < end; i++) {
+            owners[mOwners[i] >>> 6] |= 1L << mOwners[i];
+        }
+        return owners;
+    }
+
+    /**
+     * Split the query into its lower-case tokens.
+     */
+    static String[] tokenize(CharSequence query) {
+        if (query == null || query.length() == 0) {
+            return NO_TOKENS;
+        }
+        String normalized = normalize(query);
+        List<String> tokens = new ArrayList<>(2);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean tokenChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    /**
+     * Make the matched prefixes of a title bold.
+     *
+     * @param title  The title of the action.
+     * @param tokens The tokens of the query from {@link Result#getTokens()}.
+     * @return The highlighted title, or the title itself if nothing matches.
+     */
+    static CharSequence highlight(CharSequence title, String[] tokens) {
+        if (title == null || tokens.length == 0) {
+            return title;
+        }
+        String normalized = normalize(title);
+        SpannableString highlighted = null;
+        for (String token : tokens) {
+            for (int start = normalized.indexOf(token); start >= 0; start = normalized.indexOf(token, start + 1)) {
+                if (isTokenStart(normalized, start)) {
+                    if (highlighted == null) {
+                        highlighted = new SpannableString(title);
+                    }
+                    highlighted.setSpan(new StyleSpan(Typeface.BOLD), start, start + token.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    break;
+                }
+            }
+        }
+        return highlighted != null ? highlighted : title;
+    }
+
+    private static boolean isTokenStart(String text, int index) {
+        char c = text.charAt(index);
+        if (!Character.isLetterOrDigit(c)) {
+            return false;
+        }
+        // 中日文等没有分词空格的文字，每个字都可作为词元的开头
+        return index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1)) || Character.getType(c) == Character.OTHER_LETTER;
+    }
+
+    /**
+     * Lower-case the text char by char, so the offsets stay the same as in the original text.
+     */
+    private static String normalize(CharSequence text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * The titles matching a query.
+     */
+    static final class Result {
+
+        private final ActionSearchIndex mIndex;
+        private final String[] mTokens;
+        // 每个查询词元在索引中匹配的区间，用于下一次查询的增量收窄
+        private final int[] mStarts;
+        private final int[] mEnds;
+        private final int[] mPositions;
+
+        Result(ActionSearchIndex index, String[] tokens, int[] starts, int[] ends, int[] positions) {
+            this.mIndex = index;
+            this.mTokens = tokens;
+            this.mStarts = starts;
+            this.mEnds = ends;
+            this.mPositions = positions;
+        }
+
+        /**
+         * @return The lower-case tokens of the query.
+         */
+        String[] getTokens() {
+            return mTokens;
+        }
+
+        /**
+         * @return The ascending positions of the matching titles, or null if every title matches.
+         */
+        int[] getPositions() {
+            return mPositions;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.berwin.cocoadialog;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Filters the actions of a searchable action sheet by the text of its search field. The index of the action titles is
+ * built once on the background executor, every change of the text then queries it on the same executor, narrowing the
+ * previous result when the text grows. A query superseded by newer input is skipped if it has not started, and its result
+ * is dropped otherwise.
+ */
+final class ActionSheetSearch implements TextWatcher {
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // 每次输入变化或重建索引时递增，用于识别过期的查询
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    // 每次重建索引时递增，用于识别过期的索引
+    private final AtomicInteger mIndexGeneration = new AtomicInteger();
+    private final CocoaDialog mDialog;
+    private final Context mContext;
+    private final Executor mExecutor;
+    // 以下状态仅在主线程访问
+    private ActionSearchIndex mIndex;
+    private String mQuery = "";
+    // 最近完成的查询结果，作为下一次查询增量收窄的起点
+    private volatile ActionSearchIndex.Result mLastResult;
+
+    ActionSheetSearch(CocoaDialog dialog, Context context, Executor executor) {
+        this.mDialog = dialog;
+        this.mContext = context;
+        this.mExecutor = executor;
+    }
+
+    /**
+     * Rebuild the index for the given actions in the background, the actions are shown unfiltered until it is ready.
+     *
+     * @param actions The actions of the action sheet in the order they are shown.
+     */
+    void setActions(List<CocoaDialogAction> actions) {
+        final int generation = mIndexGeneration.incrementAndGet();
+        // 丢弃基于旧索引的查询
+        mGeneration.incrementAndGet();
+        final List<CocoaDialogAction> snapshot = new ArrayList<>(actions);
+        mIndex = null;
+        mLastResult = null;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIndexGeneration.get() != generation) {
+                    return;
+                }
+                List<String> titles = new ArrayList<>(snapshot.size());
+                for (CocoaDialogAction action : snapshot) {
+                    titles.add(action.getTitle(mContext));
+                }
+                final ActionSearchIndex index = ActionSearchIndex.build(titles);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mIndexGeneration.get() == generation) {
+                            mIndex = index;
+                            search();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        String query = s.toString();
+        if (!query.equals(mQuery)) {
+            mQuery = query;
+            search();
+        }
+    }
+
+    private void search() {
+        final int generation = mGeneration.incrementAndGet();
+        final ActionSearchIndex index = mIndex;
+        if (index == null) {
+            // 索引构建完成后以最新的输入查询
+            return;
+        }
+        final String query = mQuery;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mGeneration.get() != generation) {
+                    return;
+                }
+                final ActionSearchIndex.Result result = index.query(query, mLastResult);
+                mLastResult = result;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mGeneration.get() == generation) {
+                            mDialog.applyActionFilter(result.getPositions() != null ? result : null);
+                        }
+                    }
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Tracks the destruction of the activities hosting {@link CocoaDialog}s, so that resources bound to
+ * an activity can be released as soon as it goes away. Must only be used on the main thread.
+ */
+final class ActivityLifecycleWatcher implements Application.ActivityLifecycleCallbacks {
+
+    interface OnActivityDestroyedListener {
+        void onActivityDestroyed(Activity activity);
+    }
+
+    private static ActivityLifecycleWatcher sInstance;
+
+    private final Map<Activity, List<OnActivityDestroyedListener>> mListeners = new WeakHashMap<>();
+    // 已注册回调的Application，测试环境中每个用例都会创建新的Application
+    private final Set<Application> mApplications = Collections.newSetFromMap(new WeakHashMap<Application, Boolean>());
+
+    private ActivityLifecycleWatcher() {
+    }
+
+    /**
+     * Register a listener to be invoked once when the given activity is destroyed, it is invoked immediately if the
+     * activity has already been destroyed, so nothing is kept for an activity that will never be destroyed again.
+     *
+     * @param activity The activity to watch.
+     * @param listener The listener to invoke.
+     */
+    static void watch(Activity activity, OnActivityDestroyedListener listener) {
+        if (sInstance == null) {
+            sInstance = new ActivityLifecycleWatcher();
+        }
+        if (isDestroyed(activity)) {
+            listener.onActivityDestroyed(activity);
+            return;
+        }
+        Application application = activity.getApplication();
+        if (sInstance.mApplications.add(application)) {
+            application.registerActivityLifecycleCallbacks(sInstance);
+        }
+        List<OnActivityDestroyedListener> listeners = sInstance.mListeners.get(activity);
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            sInstance.mListeners.put(activity, listeners);
+        }
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    static void unwatch(Activity activity, OnActivityDestroyedListener listener) {
+        if (sInstance == null) {
+            return;
+        }
+        List<OnActivityDestroyedListener> listeners = sInstance.mListeners.get(activity);
+        if (listeners != null && listeners.remove(listener) && listeners.isEmpty()) {
+            sInstance.mListeners.remove(activity);
+        }
+    }
+
+    /**
+     * Get whether any listener is registered for the given activity.
+     */
+    static boolean isWatched(Activity activity) {
+        return sInstance != null && sInstance.mListeners.containsKey(activity);
+    }
+
+    /**
+     * Get whether the given activity is finishing or destroyed, so no dialog should be shown in it any more.
+     */
+    static boolean isGone(Activity activity) {
+        return activity.isFinishing() || isDestroyed(activity);
+    }
+
+    private static boolean isDestroyed(Activity activity) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 && activity.isDestroyed();
+    }
+
+    /**
+     * Find the activity wrapped by the given context.
+     *
+     * @param context The context to unwrap.
+     * @return The activity, or null if the context is not backed by an activity.
+     */
+    @Nullable
+    static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        List<OnActivityDestroyedListener> listeners = mListeners.remove(activity);
+        if (listeners != null) {
+            for (OnActivityDestroyedListener listener : listeners) {
+                listener.onActivityDestroyed(activity);
+            }
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+}
@@ -0,0 +1,246 @@
+package com.berwin.cocoadialog;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives the progress bar of a {@link CocoaDialog} by the sum of many tasks running concurrently, such as files synced
+ * on a thread pool, and shows the counts of the completed and failed tasks below the message.
+ *
+ * <p>Every worker reports through the {@link Task} handle of its own task from any thread. The progress is added to
+ * one of several padded counters chosen by the reporting thread, so workers on different cores rarely touch the same
+ * cache line, and the counters are summed on the main thread at most once per display frame. The overall progress
+ * never exceeds 1 and never decreases while no task is added.</p>
+ */
+public final class AggregateProgress {
+
+    // 每份权重对应的进度单位，任务进度按比例换算为整数后累加
+    private static final long UNITS_PER_WEIGHT = 1 << 16;
+    // 每个计数器占用一个缓存行，避免不同核心之间的伪共享
+    private static final int STRIPE_SPACING = 8;
+    private static final int MAX_STRIPES = 64;
+
+    private static final int STATE_RUNNING = 0;
+    private static final int STATE_COMPLETED = 1;
+    private static final int STATE_FAILED = 2;
+
+    // 所属Activity销毁时置空，之后的更新被忽略，工作线程持有的Task句柄不再经由进度引用对话框
+    private volatile CocoaDialog mDialog;
+    private final CharSequence mMessage;
+    private final AtomicLongArray mStripes;
+    private final int mStripeMask;
+    private final AtomicLong mTotalUnits = new AtomicLong();
+    private final AtomicInteger mTaskCount = new AtomicInteger();
+    private final AtomicInteger mCompletedCount = new AtomicInteger();
+    private final AtomicInteger mFailedCount = new AtomicInteger();
+    private final FrameUpdateScheduler mUpdater = new FrameUpdateScheduler() {
+        @Override
+        void onFrame() {
+            publish();
+        }
+    };
+
+    private AggregateProgress(CocoaDialog dialog) {
+        this.mDialog = dialog;
+        this.mMessage = dialog.resolveSpecMessage();
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() * 2 && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        this.mStripes = new AtomicLongArray(stripes * STRIPE_SPACING);
+        this.mStripeMask = stripes - 1;
+    }
+
+    /**
+     * Bind an aggregate progress to the given dialog, may be called from any thread.
+     * The progress stops updating the dialog once the activity of the dialog is destroyed.
+     *
+     * @param dialog The dialog built with {@link CocoaDialog.Builder#addProgressBar(ProgressBarBuildHandler)}.
+     * @return {@link AggregateProgress} instance.
+     */
+    public static AggregateProgress bind(@NonNull CocoaDialog dialog) {
+        final AggregateProgress progress = new AggregateProgress(dialog);
+        dialog.addReleaseCallback(new Runnable() {
+            @Override
+            public void run() {
+                progress.release();
+            }
+        });
+        return progress;
+    }
+
+    /**
+     * Add a task with the weight of 1, may be called from any thread.
+     *
+     * @return The handle of the new task.
+     */
+    public Task newTask() {
+        return newTask(1);
+    }
+
+    /**
+     * Add a task, may be called from any thread. The overall progress drops as the new task adds to the total weight.
+     *
+     * @param weight The share of the task in the overall progress relative to the other tasks, such as the size of a file.
+     * @return The handle of the new task.
+     */
+    public Task newTask(int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("The weight of a task must be positive.");
+        }
+        Task task = new Task(weight * UNITS_PER_WEIGHT);
+        mTotalUnits.addAndGet(task.mUnits);
+        mTaskCount.incrementAndGet();
+        mUpdater.schedule();
+        return task;
+    }
+
+    /**
+     * @return The overall progress from 0 to 1, the completed and failed tasks count as finished.
+     */
+    public float getFraction() {
+        long total = mTotalUnits.get();
+        long sum;
+        while (true) {
+            sum = sumUnits();
+            // 累加期间有任务加入时重新读取，保证进度与总量取自同一时刻，任务的权重总是先于其进度计入
+            long current = mTotalUnits.get();
+            if (current == total) {
+                break;
+            }
+            total = current;
+        }
+        return total == 0 ? 0 : (float) Math.min(1, (double) sum / total);
+    }
+
+    /**
+     * @return The count of the tasks added.
+     */
+    public int getTaskCount() {
+        return mTaskCount.get();
+    }
+
+    /**
+     * @return The count of the tasks completed successfully.
+     */
+    public int getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    /**
+     * @return The count of the tasks failed.
+     */
+    public int getFailedCount() {
+        return mFailedCount.get();
+    }
+
+    private void add(long units) {
+        int index = (int) (Thread.currentThread().getId() & mStripeMask) * STRIPE_SPACING;
+        mStripes.addAndGet(index, units);
+        mUpdater.schedule();
+    }
+
+    private long sumUnits() {
+        long sum = 0;
+        for (int i = 0; i < mStripes.length(); i += STRIPE_SPACING) {
+            sum += mStripes.get(i);
+        }
+        return sum;
+    }
+
+    private void release() {
+        mDialog = null;
+        mUpdater.cancel();
+    }
+
+    private void publish() {
+        CocoaDialog dialog = mDialog;
+        if (dialog == null) {
+            return;
+        }
+        dialog.setProgressFraction(getFraction());
+        Context context = dialog.getContext();
+        StringBuilder status = new StringBuilder();
+        if (!TextUtils.isEmpty(mMessage)) {
+            status.append(mMessage).append('\n');
+        }
+        status.append(context.getString(R.string.cocoa_dialog_task_progress, mCompletedCount.get(), mTaskCount.get(), mFailedCount.get()));
+        dialog.setMessage(status);
+    }
+
+    /**
+     * The handle of a task to report its progress, usually owned by one worker. May be used from any thread.
+     */
+    public final class Task {
+
+        private final long mUnits;
+        private final AtomicLong mReportedUnits = new AtomicLong();
+        private final AtomicInteger mState = new AtomicInteger(STATE_RUNNING);
+
+        private Task(long units) {
+            this.mUnits = units;
+        }
+
+        /**
+         * Set the progress of this task, a value lower than the reported one is ignored.
+         *
+         * @param fraction The progress from 0 to 1.
+         */
+        public void setProgress(float fraction) {
+            if (fraction > 0 && mState.get() == STATE_RUNNING) {
+                advanceTo(fraction >= 1 ? mUnits : (long) (fraction * mUnits));
+            }
+        }
+
+        /**
+         * Set the progress of this task by the count of items done, a value lower than the reported one is ignored.
+         *
+         * @param done  The count of items done.
+         * @param total The total count of items.
+         */
+        public void setProgress(long done, long total) {
+            if (total > 0 && done > 0 && mState.get() == STATE_RUNNING) {
+                advanceTo(done >= total ? mUnits : (long) ((double) done / total * mUnits));
+            }
+        }
+
+        /**
+         * Finish this task successfully, only the first call of {@link #complete()} and {@link #fail()} takes effect.
+         */
+        public void complete() {
+            if (mState.compareAndSet(STATE_RUNNING, STATE_COMPLETED)) {
+                mCompletedCount.incrementAndGet();
+                advanceTo(mUnits);
+            }
+        }
+
+        /**
+         * Finish this task with a failure, its weight counts as finished in the overall progress.
+         * Only the first call of {@link #complete()} and {@link #fail()} takes effect.
+         */
+        public void fail() {
+            if (mState.compareAndSet(STATE_RUNNING, STATE_FAILED)) {
+                mFailedCount.incrementAndGet();
+                advanceTo(mUnits);
+            }
+        }
+
+        private void advanceTo(long units) {
+            while (true) {
+                long reported = mReportedUnits.get();
+                if (units <= reported) {
+                    return;
+                }
+                if (mReportedUnits.compareAndSet(reported, units)) {
+                    add(units - reported);
+                    return;
+                }
+            }
+        }
+    }
+}
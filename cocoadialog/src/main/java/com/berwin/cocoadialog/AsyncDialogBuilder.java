@@ -0,0 +1,81 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Prepares the content view of a {@link CocoaDialog} on a background executor and hands the dialog back on the
+ * main thread, see {@link CocoaDialog.Builder#buildAsync(Executor, CocoaDialogBuildCallback)}. The hand-off is
+ * dropped if the activity of the dialog goes away first.
+ */
+final class AsyncDialogBuilder implements Runnable, ActivityLifecycleWatcher.OnActivityDestroyedListener {
+
+    private final CocoaDialog mDialog;
+    private final Activity mActivity;
+    private final CocoaDialogBuildCallback mCallback;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean mCancelled;
+    private int mCreatedViewCount;
+
+    private final Runnable mDeliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            deliver();
+        }
+    };
+
+    private AsyncDialogBuilder(CocoaDialog dialog, Activity activity, CocoaDialogBuildCallback callback) {
+        this.mDialog = dialog;
+        this.mActivity = activity;
+        this.mCallback = callback;
+    }
+
+    /**
+     * Start preparing the given dialog, must be called on the main thread.
+     *
+     * @param dialog   The dialog just built.
+     * @param context  The context the dialog is built with.
+     * @param executor The background executor.
+     * @param callback The callback to receive the dialog.
+     */
+    static void start(CocoaDialog dialog, Context context, Executor executor, CocoaDialogBuildCallback callback) {
+        Activity activity = ActivityLifecycleWatcher.findActivity(context);
+        AsyncDialogBuilder builder = new AsyncDialogBuilder(dialog, activity, callback);
+        if (activity != null) {
+            ActivityLifecycleWatcher.watch(activity, builder);
+        }
+        executor.execute(builder);
+    }
+
+    @Override
+    public void run() {
+        if (!mCancelled) {
+            mCreatedViewCount = mDialog.prepareContentView();
+        }
+        // 通过消息队列交回主线程，保证后台线程对视图的修改对主线程可见
+        mMainHandler.post(mDeliverRunnable);
+    }
+
+    private void deliver() {
+        if (mActivity != null) {
+            ActivityLifecycleWatcher.unwatch(mActivity, this);
+            if (ActivityLifecycleWatcher.isGone(mActivity)) {
+                mCancelled = true;
+            }
+        }
+        if (mCancelled) {
+            return;
+        }
+        CocoaDialogViewPool.countCreatedViews(mCreatedViewCount);
+        mCallback.onDialogBuilt(mDialog);
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        mCancelled = true;
+    }
+}
@@ -1,189 +1,868 @@
 package com.berwin.cocoadialog;
 
+import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringRes;
 import android.support.annotation.StyleRes;
+import android.text.TextUtils;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.KeyEvent;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.LinearLayout;
+import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import com.berwin.cocoadialog.utils.DensityUtil;
+import com.berwin.cocoadialog.utils.DimensionCache;
+import com.berwin.cocoadialog.utils.DrawableCache;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public final class CocoaDialog extends Dialog {
 
-    private LinearLayout mContentPanel;
-    private LinearLayout mButtonPanel;
-    private LinearLayout mHeaderPanel;
-    private View mPanelBorder;
+    private static volatile CocoaDialogMetrics sDefaultMetrics;
 
-    private final ProgressBar mProgressBar;
-    private final List<EditText> mEditTextList;
+    private final Context mHostContext;
+    private CocoaDialogSpec mSpec;
+    private CocoaDialogLayout mContentPanel;
+    // 由Builder.buildAsync在后台线程构建好的内容视图，首次显示时直接使用
+    private CocoaDialogLayout mPreparedPanel;
+    private boolean mPreparing;
+    private int mPreparedViewCount;
 
-    private final CharSequence mTitle;
-    private final CharSequence mMessage;
-    private final int mAnimStyleResId;
-    private final CocoaDialogStyle mPreferredStyle;
-    private final List<CocoaDialogAction> mActionList;
+    // 输入框和进度条在对话框创建时才由对应的Handler构建
+    private ProgressBar mProgressBar;
+    private List<EditText> mEditTextList;
+
+    // 可搜索的actionSheet顶部的搜索框，及当前的搜索结果，null表示显示全部按钮
+    private final ActionSheetSearch mActionSearch;
+    private EditText mSearchEditText;
+    private ActionSearchIndex.Result mActionFilter;
 
     private int mCustomWidth;
     private int mCustomHeight;
-    private int mCustomGravity;
-    private final View mCustomContentView;
-
-    private CocoaDialog(Builder builder) {
-        super(builder.context, android.R.style.Theme_Dialog);
-        this.mTitle = builder.title;
-        this.mMessage = builder.message;
-        this.mActionList = builder.actionList;
-        this.mProgressBar = builder.progressBar;
-        this.mEditTextList = builder.editTextList;
-        this.mAnimStyleResId = builder.animStyleRes;
-        this.mPreferredStyle = builder.preferredStyle;
-        this.mCustomHeight = builder.customHeight;
-        this.mCustomWidth = builder.customWidth;
-        this.mCustomGravity = builder.customGravity;
-        this.mCustomContentView = builder.customContentView;
-        if (builder.cancelable != null) {
-            setCancelable(builder.cancelable);
-        }
-        if (builder.canceledOnTouchOutside != null) {
-            setCanceledOnTouchOutside(builder.canceledOnTouchOutside);
-        }
-        setOnCancelListener(builder.onCancelListener);
-        setOnDismissListener(builder.onDismissListener);
+    private final TextLayoutPrecomputer mTextPrecomputer;
+    private List<Runnable> mDismissCallbacks;
+    private Set<CocoaDialogAction> mDisabledActions;
+    private EditTextValidation mValidation;
+    private final MessageStream mMessageStream;
+
+    // 共享窗口模式下内容视图显示在所属Activity唯一的对话框窗口中，不创建自己的窗口
+    private final boolean mSharedWindow;
+    private CocoaDialogWindowHost mWindowHost;
+    private boolean mHostedShowing;
+    // 共享窗口模式下不调用Dialog.show，Dialog自身的取消状态不会重置，由此记录本次显示是否已取消
+    private boolean mHostedCanceled;
+    private OnCancelListener mOnCancelListener;
+    private boolean mCancelable = true;
+    private Boolean mCanceledOnTouchOutside;
+    private OnDismissListener mOnDismissListener;
+
+    // 显示期间或绑定了进度时监听所属Activity，销毁时自动关闭并释放，之后不再显示
+    private volatile boolean mReleased;
+    private ActivityLifecycleWatcher.OnActivityDestroyedListener mReleaseListener;
+    private List<Runnable> mReleaseCallbacks;
+
+    // 仅在设置了CocoaDialogMetrics时计时
+    private final CocoaDialogMetrics mMetrics;
+    private long mShowNanos;
+    private long mStartEndNanos;
+    private int mShowViewCount;
+    private ViewTreeObserver.OnPreDrawListener mFirstDrawListener;
+
+    // 待显示的进度，由任意线程写入，每帧最多在主线程应用一次；比例值以标记位区分
+    private static final long NO_PENDING_PROGRESS = Long.MIN_VALUE;
+    private static final long PENDING_FRACTION_FLAG = 1L << 40;
+    private final AtomicLong mPendingProgress = new AtomicLong(NO_PENDING_PROGRESS);
+    private final FrameUpdateScheduler mProgressUpdater = new FrameUpdateScheduler() {
+        @Override
+        void onFrame() {
+            applyPendingProgress();
+        }
+    };
+
+    // 显示后设置的信息，由任意线程写入，每帧最多在主线程应用一次；空字符串表示隐藏信息
+    private final AtomicReference<CharSequence> mPendingMessage = new AtomicReference<>();
+    private CharSequence mMessageOverride;
+    private final FrameUpdateScheduler mMessageUpdater = new FrameUpdateScheduler() {
+        @Override
+        void onFrame() {
+            applyPendingMessage();
+        }
+    };
+
+    // 当前显示的按钮对应的Action，按钮通过tag中的下标由统一的点击分发器查找
+    private final List<CocoaDialogAction> mBoundActions = new ArrayList<>();
+    private final View.OnClickListener mActionClickDispatcher = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            Object index = v.getTag(R.id.cocoa_dialog_action_index);
+            if (!(index instanceof Integer)) {
+                return;
+            }
+            CocoaDialogAction action = mBoundActions.get((Integer) index);
+            dismiss();
+            if (action.getOnClickListener() != null) {
+                action.getOnClickListener().onClick(CocoaDialog.this);
+            }
+        }
+    };
+
+    CocoaDialog(Context context, CocoaDialogSpec spec, CocoaDialogMetrics metrics, long buildStartNanos) {
+        super(context, android.R.style.Theme_Dialog);
+        this.mHostContext = context;
+        this.mSpec = spec;
+        this.mMetrics = metrics;
+        this.mCustomHeight = spec.customHeight;
+        this.mCustomWidth = spec.customWidth;
+        this.mSharedWindow = spec.sharedWindow && ActivityLifecycleWatcher.findActivity(context) != null;
+        if (spec.textPrecomputeExecutor != null && spec.style != CocoaDialogStyle.custom && spec.hasText()) {
+            this.mTextPrecomputer = TextLayoutPrecomputer.start(context, spec, spec.textPrecomputeExecutor);
+        } else {
+            this.mTextPrecomputer = null;
+        }
+        if (spec.cancelable != null) {
+            setCancelable(spec.cancelable);
+        }
+        if (spec.canceledOnTouchOutside != null) {
+            setCanceledOnTouchOutside(spec.canceledOnTouchOutside);
+        }
+        setOnCancelListener(spec.onCancelListener);
+        setOnDismissListener(spec.onDismissListener);
+        if (spec.streamingMaxLines > 0 && spec.style != CocoaDialogStyle.custom) {
+            this.mMessageStream = new MessageStream(spec.streamingMaxLines, spec.streamingAutoScroll, spec.resolveMessage(context));
+        } else {
+            this.mMessageStream = null;
+        }
+        if (spec.actionSearchExecutor != null) {
+            this.mActionSearch = new ActionSheetSearch(this, context, spec.actionSearchExecutor);
+            mActionSearch.setActions(spec.actions);
+        } else {
+            this.mActionSearch = null;
+        }
+        if (spec.validator != null && !spec.editTextHandlers.isEmpty()) {
+            // 校验通过前禁用受控的按钮
+            mDisabledActions = new HashSet<>(spec.guardedActions);
+        }
+        if (metrics != null) {
+            reportPhase(CocoaDialogMetrics.PHASE_BUILD, buildStartNanos);
+        }
+    }
+
+    /**
+     * Set the {@link CocoaDialogMetrics} to receive the timings of all the {@link CocoaDialog}s built afterwards,
+     * unless one is set by {@link Builder#setMetrics(CocoaDialogMetrics)}.
+     *
+     * @param metrics The listener, null to stop measuring.
+     */
+    public static void setDefaultMetrics(@Nullable CocoaDialogMetrics metrics) {
+        sDefaultMetrics = metrics;
+    }
+
+    static CocoaDialogMetrics getDefaultMetrics() {
+        return sDefaultMetrics;
+    }
+
+    /**
+     * Prepare the first {@link CocoaDialog} of the given styles ahead of time, such as the theme, the content views,
+     * the action buttons and the backgrounds. The work is split into small steps run only while the main thread is idle,
+     * so it never delays a frame. May be called from any thread, the content views are kept in {@link CocoaDialogViewPool}
+     * only if the context belongs to an activity.
+     *
+     * @param context The context the dialogs will be built with, usually an activity.
+     * @param styles  The styles of the dialogs to prepare, {@link CocoaDialogStyle#custom} is ignored.
+     */
+    public static void prewarm(@NonNull Context context, CocoaDialogStyle... styles) {
+        CocoaDialogPrewarmer.start(context, styles);
     }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
         super.onCreate(savedInstanceState);
         Window mWindow = getWindow();
         assert mWindow != null;
         mWindow.requestFeature(Window.FEATURE_NO_TITLE);
         mWindow.setBackgroundDrawableResource(android.R.color.transparent);
-        View contentView;
-        switch (mPreferredStyle) {
+        switch (mSpec.style) {
             case alert:
-                DisplayMetrics dm = getContext().getResources().getDisplayMetrics();
-                mCustomWidth = Math.round(Math.min(dm.widthPixels, dm.heightPixels) * 0.8f);
-                mCustomHeight = WindowManager.LayoutParams.WRAP_CONTENT;
-                contentView = LayoutInflater.from(getContext()).inflate(com.berwin.cocoadialog.R.layout.cocoa_dialog_alert, null, false);
-                mWindow.setWindowAnimations(mAnimStyleResId == 0 ? android.R.style.Animation_Dialog : mAnimStyleResId);
-                mHeaderPanel = contentView.findViewById(R.id.headPanel);
-                if (mTitle == null && mMessage == null && (mEditTextList == null || mEditTextList.isEmpty())) {
-                    mHeaderPanel.setVisibility(View.GONE);
-                }
-                if (mProgressBar != null) {
-                    LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT);
-                    if (mTitle != null && mMessage != null) {
-                        params.topMargin = DensityUtil.dip2px(getContext(), 10);
-                    }
-                    params.gravity = Gravity.CENTER_HORIZONTAL;
-                    mProgressBar.setLayoutParams(params);
-                    mHeaderPanel.addView(mProgressBar);
-                }
-                if (mEditTextList != null) {
-//                    int padding = DensityUtil.dip2px(getContext(), 4);
-                    LinearLayout.LayoutParams firstParams = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-                    firstParams.topMargin = DensityUtil.dip2px(getContext(), 12);
-                    LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-                    params.topMargin = DensityUtil.dip2px(getContext(), 8);
-                    for (int i = 0; i < mEditTextList.size(); i++) {
-                        EditText editText = mEditTextList.get(i);
-//                        editText.setBackgroundResource(com.berwin.cocoadialog.R.drawable.cocoa_dialog_edit_text_background);
-                        editText.setLayoutParams(i == 0 ? firstParams : params);
-//                        editText.setPadding(padding, padding, padding, padding);
-                        editText.setLines(1);
-                        editText.setMaxLines(1);
-                        mHeaderPanel.addView(editText);
-                    }
-                }
+                mWindow.setWindowAnimations(mSpec.animStyleRes == 0 ? android.R.style.Animation_Dialog : mSpec.animStyleRes);
                 break;
             case actionSheet:
-                mCustomWidth = WindowManager.LayoutParams.MATCH_PARENT;
-                mCustomHeight = WindowManager.LayoutParams.WRAP_CONTENT;
-                contentView = LayoutInflater.from(getContext()).inflate(com.berwin.cocoadialog.R.layout.cocoa_dialog_action_sheet, null, false);
                 mWindow.setWindowAnimations(com.berwin.cocoadialog.R.style.Animation_CocoaDialog_ActionSheet);
                 mWindow.setGravity(Gravity.BOTTOM);
-                mHeaderPanel = contentView.findViewById(R.id.headPanel);
-                if (mTitle == null && mMessage == null) {
-                    mHeaderPanel.setVisibility(View.GONE);
-                }
                 break;
             case custom:
-                if (mCustomContentView == null) {
+                if (mSpec.customContentView == null) {
                     throw new IllegalArgumentException("Custom content view can not be null, call CocoaDailog.Builder.setCustomContentView(View) first.");
                 }
-                mWindow.setGravity(mCustomGravity);
-                mWindow.setWindowAnimations(mAnimStyleResId == 0 ? android.R.style.Animation_Dialog : mAnimStyleResId);
+                mWindow.setGravity(mSpec.customGravity);
+                mWindow.setWindowAnimations(mSpec.animStyleRes == 0 ? android.R.style.Animation_Dialog : mSpec.animStyleRes);
+                setContentView(mSpec.customContentView);
+                break;
+            default:
+                return;
+        }
+        resolveWindowSize();
+        if (mSpec.style != CocoaDialogStyle.custom) {
+            buildInputs();
+            installContentView();
+        }
+        if (mMetrics != null) {
+            reportPhase(CocoaDialogMetrics.PHASE_CREATE, startNanos);
+        }
+    }
+
+    private void resolveWindowSize() {
+        switch (mSpec.style) {
+            case alert:
+                DisplayMetrics dm = getContext().getResources().getDisplayMetrics();
+                mCustomWidth = Math.round(Math.min(dm.widthPixels, dm.heightPixels) * 0.8f);
+                mCustomHeight = WindowManager.LayoutParams.WRAP_CONTENT;
+                break;
+            case actionSheet:
+                mCustomWidth = WindowManager.LayoutParams.MATCH_PARENT;
+                mCustomHeight = WindowManager.LayoutParams.WRAP_CONTENT;
+                break;
+            default:
                 if (mCustomWidth < WindowManager.LayoutParams.WRAP_CONTENT) {
                     mCustomWidth = WindowManager.LayoutParams.WRAP_CONTENT;
                 }
                 if (mCustomHeight < WindowManager.LayoutParams.WRAP_CONTENT) {
                     mCustomHeight = WindowManager.LayoutParams.WRAP_CONTENT;
                 }
-                setContentView(mCustomContentView);
-                return;
-            default:
-                return;
+                break;
         }
-        TextView titleText = contentView.findViewById(R.id.title);
-        TextView messageText = contentView.findViewById(R.id.message);
-        if (mTitle != null) {
-            titleText.setText(mTitle);
-        } else {
-            titleText.setVisibility(View.GONE);
+    }
+
+    /**
+     * Build the search field, the edit texts and the progress bar by the handlers of {@link CocoaDialogSpec}, only the first call takes effect.
+     */
+    private void buildInputs() {
+        if (mReleased) {
+            return;
+        }
+        if (mSearchEditText == null && mActionSearch != null) {
+            mSearchEditText = new EditText(mHostContext);
+            CocoaDialogViewPool.countCreatedViews(1);
+            mSearchEditText.setHint(R.string.cocoa_dialog_search_hint);
+            mSearchEditText.setSingleLine(true);
+            mSearchEditText.addTextChangedListener(mActionSearch);
+        }
+        if (mEditTextList == null && !mSpec.editTextHandlers.isEmpty()) {
+            List<EditText> editTextList = new ArrayList<>(mSpec.editTextHandlers.size());
+            for (EditTextConfigurationHandler handler : mSpec.editTextHandlers) {
+                EditText editText = new EditText(mHostContext);
+                CocoaDialogViewPool.countCreatedViews(1);
+                editTextList.add(editText);
+                if (handler != null) {
+                    handler.onEditTextAdded(editText);
+                }
+            }
+            mEditTextList = editTextList;
+            if (mSpec.validator != null) {
+                mValidation = new EditTextValidation(this, editTextList, mSpec);
+            }
+        }
+        if (mProgressBar == null && mSpec.progressBarHandler != null) {
+            mProgressBar = mSpec.progressBarHandler.build(mHostContext);
+            CocoaDialogViewPool.countCreatedViews(1);
+            // 应用创建前设置的进度
+            applyPendingProgress();
+        }
+    }
+
+    /**
+     * Show this dialog, does nothing once the activity it is built with has been destroyed.
+     */
+    @Override
+    public void show() {
+        watchActivity();
+        if (mReleased) {
+            return;
+        }
+        if (mMetrics != null) {
+            mShowNanos = System.nanoTime();
+            mShowViewCount = CocoaDialogViewPool.getCreatedViewCount();
+        }
+        if (mSharedWindow) {
+            if (!mHostedShowing) {
+                if (mWindowHost == null) {
+                    mWindowHost = CocoaDialogWindowHost.get(ActivityLifecycleWatcher.findActivity(mHostContext));
+                }
+                mHostedShowing = true;
+                mHostedCanceled = false;
+                mWindowHost.attach(this);
+            }
+            return;
+        }
+        super.show();
+    }
+
+    @Override
+    public void dismiss() {
+        if (!mSharedWindow) {
+            super.dismiss();
+            return;
+        }
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    dismiss();
+                }
+            });
+            return;
+        }
+        if (!mHostedShowing) {
+            return;
+        }
+        mHostedShowing = false;
+        if (mValidation != null) {
+            mValidation.stop();
         }
-        if (mMessage != null) {
-            messageText.setText(mMessage);
+        mWindowHost.detach(this);
+        runDismissCallbacks();
+        unwatchActivity();
+        if (mOnDismissListener != null) {
+            mOnDismissListener.onDismiss(this);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        if (!mSharedWindow) {
+            super.cancel();
+            return;
+        }
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    cancel();
+                }
+            });
+            return;
+        }
+        if (mHostedShowing && !mHostedCanceled) {
+            mHostedCanceled = true;
+            if (mOnCancelListener != null) {
+                mOnCancelListener.onCancel(this);
+            }
+        }
+        dismiss();
+    }
+
+    @Override
+    public boolean isShowing() {
+        return mSharedWindow ? mHostedShowing : super.isShowing();
+    }
+
+    @Override
+    public void setCancelable(boolean flag) {
+        super.setCancelable(flag);
+        mCancelable = flag;
+    }
+
+    @Override
+    public void setCanceledOnTouchOutside(boolean cancel) {
+        super.setCanceledOnTouchOutside(cancel);
+        mCanceledOnTouchOutside = cancel;
+        if (cancel) {
+            mCancelable = true;
+        }
+    }
+
+    @Override
+    public void setOnCancelListener(@Nullable OnCancelListener listener) {
+        super.setOnCancelListener(listener);
+        mOnCancelListener = listener;
+    }
+
+    @Override
+    public void setOnDismissListener(@Nullable OnDismissListener listener) {
+        super.setOnDismissListener(listener);
+        mOnDismissListener = listener;
+    }
+
+    boolean isCancelable() {
+        return mCancelable;
+    }
+
+    /**
+     * @return Whether touches outside cancel this dialog, null if not set.
+     */
+    Boolean getCanceledOnTouchOutside() {
+        return mCanceledOnTouchOutside;
+    }
+
+    /**
+     * Build the content view shown in the window of {@link CocoaDialogWindowHost}, in place of {@link #onCreate(Bundle)}.
+     *
+     * @return The content view.
+     */
+    View onAttachToWindowHost() {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
+        if (mSpec.style == CocoaDialogStyle.custom) {
+            if (mSpec.customContentView == null) {
+                throw new IllegalArgumentException("Custom content view can not be null, call CocoaDailog.Builder.setCustomContentView(View) first.");
+            }
         } else {
-            messageText.setVisibility(View.GONE);
+            buildInputs();
+            if (mContentPanel == null) {
+                installContentView();
+            }
+        }
+        resolveWindowSize();
+        if (mMetrics != null) {
+            reportPhase(CocoaDialogMetrics.PHASE_CREATE, startNanos);
+        }
+        return getWindowHostContentView();
+    }
+
+    View getWindowHostContentView() {
+        return mSpec.style == CocoaDialogStyle.custom ? mSpec.customContentView : mContentPanel;
+    }
+
+    /**
+     * Apply the size and animation of this dialog to the window of {@link CocoaDialogWindowHost} when its content becomes visible,
+     * in place of {@link #onStart()}.
+     *
+     * @param window The shared window.
+     */
+    void onWindowHostStart(Window window) {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
+        WindowManager.LayoutParams l = window.getAttributes();
+        l.width = this.mCustomWidth;
+        l.height = this.mCustomHeight;
+        l.gravity = Gravity.CENTER;
+        l.windowAnimations = mSpec.animStyleRes == 0 ? android.R.style.Animation_Dialog : mSpec.animStyleRes;
+        window.setAttributes(l);
+        if (mValidation != null) {
+            mValidation.start();
+        }
+        if (mMetrics != null) {
+            reportPhase(CocoaDialogMetrics.PHASE_START, startNanos);
+            mStartEndNanos = System.nanoTime();
+            watchFirstDraw(window.getDecorView());
+        }
+    }
+
+    /**
+     * Give the content view back after it faded out of the window of {@link CocoaDialogWindowHost}.
+     */
+    void onRemovedFromWindowHost() {
+        if (mSpec.style != CocoaDialogStyle.custom) {
+            recycleContentView();
+        } else if (mSpec.customContentView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) mSpec.customContentView.getParent()).removeView(mSpec.customContentView);
         }
-        mContentPanel = contentView.findViewById(R.id.contentPanel);
-        mPanelBorder = contentView.findViewById(R.id.panelBorder);
-        mButtonPanel = contentView.findViewById(R.id.buttonPanel);
-        resolveActions();
-        setContentView(contentView);
     }
 
     @Override
     protected void onStart() {
+        long startNanos = mMetrics != null ? System.nanoTime() : 0;
         super.onStart();
+        if (mContentPanel == null && mSpec.style != CocoaDialogStyle.custom) {
+            // 再次显示时内容视图已归还到复用池中，需要重新获取
+            installContentView();
+        }
         Window mWindow = getWindow();
         assert mWindow != null;
         WindowManager.LayoutParams l = mWindow.getAttributes();
         l.width = this.mCustomWidth;
         l.height = this.mCustomHeight;
         mWindow.setAttributes(l);
+        if (mValidation != null) {
+            mValidation.start();
+        }
+        if (mMetrics != null) {
+            reportPhase(CocoaDialogMetrics.PHASE_START, startNanos);
+            mStartEndNanos = System.nanoTime();
+            watchFirstDraw(mWindow.getDecorView());
+        }
+    }
+
+    private void watchFirstDraw(final View decorView) {
+        if (mFirstDrawListener == null) {
+            mFirstDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                    reportPhase(CocoaDialogMetrics.PHASE_FIRST_DRAW, mStartEndNanos);
+                    mMetrics.onShown(CocoaDialog.this, System.nanoTime() - mShowNanos, CocoaDialogViewPool.getCreatedViewCount() - mShowViewCount);
+                    return true;
+                }
+            };
+        }
+        // 监听在首帧绘制前移除，重复添加前先移除以防对话框在绘制前被关闭
+        decorView.getViewTreeObserver().removeOnPreDrawListener(mFirstDrawListener);
+        decorView.getViewTreeObserver().addOnPreDrawListener(mFirstDrawListener);
+    }
+
+    private void reportPhase(@CocoaDialogMetrics.Phase int phase, long startNanos) {
+        mMetrics.onPhase(this, phase, System.nanoTime() - startNanos);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (mValidation != null) {
+            mValidation.stop();
+        }
+        recycleContentView();
+        runDismissCallbacks();
+        unwatchActivity();
+    }
+
+    private void runDismissCallbacks() {
+        // 回调可能移除自身，从后向前遍历
+        for (int i = mDismissCallbacks != null ? mDismissCallbacks.size() - 1 : -1; i >= 0; i--) {
+            List<Runnable> callbacks = mDismissCallbacks;
+            if (callbacks == null) {
+                return;
+            }
+            if (i < callbacks.size()) {
+                callbacks.get(i).run();
+            }
+        }
+    }
+
+    private void watchActivity() {
+        Activity activity = ActivityLifecycleWatcher.findActivity(mHostContext);
+        if (activity == null || mReleased) {
+            return;
+        }
+        if (mReleaseListener == null) {
+            mReleaseListener = new ActivityLifecycleWatcher.OnActivityDestroyedListener() {
+                @Override
+                public void onActivityDestroyed(Activity activity) {
+                    release();
+                }
+            };
+        }
+        ActivityLifecycleWatcher.watch(activity, mReleaseListener);
+    }
+
+    private void unwatchActivity() {
+        synchronized (this) {
+            if (mReleaseListener == null || mReleaseCallbacks != null) {
+                // 仍有绑定的进度时继续监听
+                return;
+            }
+        }
+        Activity activity = ActivityLifecycleWatcher.findActivity(mHostContext);
+        if (activity != null) {
+            ActivityLifecycleWatcher.unwatch(activity, mReleaseListener);
+        }
+    }
+
+    /**
+     * Add a callback invoked on the main thread when the activity of this {@link CocoaDialog} is destroyed, to drop the
+     * references to this dialog held by objects outliving the activity, such as progress bindings used by worker threads.
+     * Invoked immediately if the activity has already been destroyed. May be called from any thread.
+     *
+     * @param callback The callback to invoke.
+     */
+    void addReleaseCallback(Runnable callback) {
+        boolean released;
+        synchronized (this) {
+            released = mReleased;
+            if (!released) {
+                if (mReleaseCallbacks == null) {
+                    mReleaseCallbacks = new ArrayList<>(1);
+                }
+                mReleaseCallbacks.add(callback);
+            }
+        }
+        if (released) {
+            callback.run();
+        } else if (Looper.myLooper() == Looper.getMainLooper()) {
+            watchActivity();
+        } else {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    watchActivity();
+                }
+            });
+        }
+    }
+
+    /**
+     * Dismiss this dialog and drop the views, listeners and bindings referring to its activity, called when the activity
+     * is destroyed. The content views are not given back to {@link CocoaDialogViewPool} as the pool of the activity is evicted.
+     */
+    private void release() {
+        if (mReleased) {
+            return;
+        }
+        dismiss();
+        List<Runnable> callbacks;
+        synchronized (this) {
+            mReleased = true;
+            callbacks = mReleaseCallbacks;
+            mReleaseCallbacks = null;
+        }
+        if (callbacks != null) {
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
+        mProgressUpdater.cancel();
+        mMessageUpdater.cancel();
+        mPendingMessage.set(null);
+        if (mMessageStream != null) {
+            mMessageStream.cancel();
+        }
+        if (mValidation != null) {
+            mValidation.stop();
+        }
+        // 解除可能被缓存的spec中自定义视图与本对话框窗口的关联
+        if (mSpec.customContentView != null && mSpec.customContentView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) mSpec.customContentView.getParent()).removeView(mSpec.customContentView);
+        }
+        mPreparedPanel = null;
+        mEditTextList = null;
+        mProgressBar = null;
+        mSearchEditText = null;
+        mBoundActions.clear();
+        mDismissCallbacks = null;
+        mWindowHost = null;
+        setOnCancelListener(null);
+        setOnDismissListener(null);
+    }
+
+    /**
+     * Add a callback invoked on the main thread after this {@link CocoaDialog} is dismissed, independent of
+     * the {@link android.content.DialogInterface.OnDismissListener} set by the user. The callbacks run in the reverse
+     * order they are added, and may remove themselves.
+     *
+     * @param callback The callback to invoke.
+     */
+    void addDismissCallback(Runnable callback) {
+        if (mDismissCallbacks == null) {
+            mDismissCallbacks = new ArrayList<>(1);
+        }
+        mDismissCallbacks.add(callback);
+    }
+
+    void removeDismissCallback(Runnable callback) {
+        if (mDismissCallbacks != null) {
+            mDismissCallbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Borrow a content view of the preferred style from {@link CocoaDialogViewPool} and bind the title, message, inputs and actions to it,
+     * or take the one prepared by {@link Builder#buildAsync(Executor, CocoaDialogBuildCallback)}.
+     */
+    private void installContentView() {
+        if (mPreparedPanel != null) {
+            // 标题、信息及按钮已在后台线程绑定，只需插入输入框
+            mContentPanel = mPreparedPanel;
+            mPreparedPanel = null;
+            addInputViews();
+            if (mMessageStream != null) {
+                TextView messageText = mContentPanel.findViewById(R.id.message);
+                mMessageStream.bind(messageText);
+            }
+        } else {
+            mContentPanel = (CocoaDialogLayout) CocoaDialogViewPool.acquire(mHostContext, getContext(), mSpec.style);
+            addInputViews();
+            bindContent();
+        }
+        if (!mSharedWindow) {
+            setContentView(mContentPanel);
+        }
+    }
+
+    /**
+     * Inflate the content view and bind the title, message and actions to it on the calling background thread, ahead of
+     * the first show. The views are only touched by this thread until the dialog is handed to the main thread, the edit texts
+     * and the progress bar are still built on the main thread as their handlers expect.
+     *
+     * @return The count of the views created.
+     */
+    int prepareContentView() {
+        if (mSpec.style == CocoaDialogStyle.custom) {
+            return 0;
+        }
+        mPreparing = true;
+        try {
+            mContentPanel = (CocoaDialogLayout) CocoaDialogViewPool.newContentView(getContext(), mSpec.style);
+            mPreparedViewCount = mContentPanel.getChildCount() + 1;
+            bindContent();
+            mPreparedPanel = mContentPanel;
+            return mPreparedViewCount;
+        } finally {
+            mContentPanel = null;
+            mPreparing = false;
+        }
+    }
+
+    /**
+     * Add the search field, the progress bar and the edit texts below the title and message.
+     */
+    private void addInputViews() {
+        DimensionCache dimens = DimensionCache.get(getContext());
+        // 输入框位于标题、信息之后，按钮之前
+        int index = 2;
+        if (mSearchEditText != null) {
+            CocoaDialogLayout.LayoutParams params = new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            if (mSpec.hasText()) {
+                params.topMargin = dimens.dip2px(10);
+            }
+            mSearchEditText.setLayoutParams(params);
+            mContentPanel.addView(mSearchEditText, index);
+        }
+        if (mSpec.style == CocoaDialogStyle.alert) {
+            if (mProgressBar != null && !mSpec.headerHidden) {
+                CocoaDialogLayout.LayoutParams params = new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+                if (mSpec.hasTitle() && mSpec.hasMessage()) {
+                    params.topMargin = dimens.dip2px(10);
+                }
+                params.gravity = Gravity.CENTER_HORIZONTAL;
+                mProgressBar.setLayoutParams(params);
+                mContentPanel.addView(mProgressBar, index++);
+            }
+            if (mEditTextList != null) {
+//                int padding = dimens.dip2px(4);
+                CocoaDialogLayout.LayoutParams firstParams = new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+                firstParams.topMargin = dimens.dip2px(12);
+                CocoaDialogLayout.LayoutParams params = new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+                params.topMargin = dimens.dip2px(8);
+                for (int i = 0; i < mEditTextList.size(); i++) {
+                    EditText editText = mEditTextList.get(i);
+//                    editText.setBackgroundResource(com.berwin.cocoadialog.R.drawable.cocoa_dialog_edit_text_background);
+                    editText.setLayoutParams(i == 0 ? firstParams : params);
+//                    editText.setPadding(padding, padding, padding, padding);
+                    editText.setLines(1);
+                    editText.setMaxLines(1);
+                    mContentPanel.addView(editText, index++);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bind the title, message and actions to the content view.
+     */
+    private void bindContent() {
+        CharSequence title;
+        CharSequence message;
+        CharSequence[] precomputedText = mTextPrecomputer != null ? mTextPrecomputer.consume() : null;
+        if (precomputedText != null) {
+            title = precomputedText[TextLayoutPrecomputer.TITLE];
+            message = precomputedText[TextLayoutPrecomputer.MESSAGE];
+        } else {
+            title = mSpec.resolveTitle(getContext());
+            message = mSpec.resolveMessage(getContext());
+        }
+        TextView titleText = mContentPanel.findViewById(R.id.title);
+        TextView messageText = mContentPanel.findViewById(R.id.message);
+        if (title != null) {
+            if (mTextPrecomputer != null) {
+                mTextPrecomputer.setText(titleText, TextLayoutPrecomputer.TITLE, title);
+            } else {
+                titleText.setText(title);
+            }
+        } else {
+            titleText.setVisibility(View.GONE);
+        }
+        if (mMessageOverride != null) {
+            message = mMessageOverride.length() > 0 ? mMessageOverride : null;
+        }
+        if (mMessageStream != null) {
+            if (!mPreparing) {
+                mMessageStream.bind(messageText);
+            }
+        } else if (message != null) {
+            if (mTextPrecomputer != null) {
+                mTextPrecomputer.setText(messageText, TextLayoutPrecomputer.MESSAGE, message);
+            } else {
+                messageText.setText(message);
+            }
+        } else {
+            messageText.setVisibility(View.GONE);
+        }
+        mBoundActions.clear();
+        long resolveStartNanos = mMetrics != null ? System.nanoTime() : 0;
+        resolveActions();
+        if (mMetrics != null && !mPreparing) {
+            reportPhase(CocoaDialogMetrics.PHASE_RESOLVE_ACTIONS, resolveStartNanos);
+        }
+    }
+
+    /**
+     * Detach the content view from the window, reset it to its inflated state and give it back to {@link CocoaDialogViewPool}.
+     */
+    private void recycleContentView() {
+        CocoaDialogLayout contentPanel = mContentPanel;
+        if (contentPanel == null) {
+            return;
+        }
+        mContentPanel = null;
+        if (contentPanel.getParent() instanceof ViewGroup) {
+            ((ViewGroup) contentPanel.getParent()).removeView(contentPanel);
+        }
+        TextView titleText = contentPanel.findViewById(R.id.title);
+        TextView messageText = contentPanel.findViewById(R.id.message);
+        if (mMessageStream != null) {
+            mMessageStream.unbind();
+        }
+        titleText.setText(null);
+        titleText.setVisibility(View.VISIBLE);
+        messageText.setText(null);
+        messageText.setVisibility(View.VISIBLE);
+        // 移除显示时动态添加的输入框、进度条及按钮，仅保留布局文件中的标题和信息，按钮归还到复用池中
+        for (int i = contentPanel.getChildCount() - 1; i >= 2; i--) {
+            View child = contentPanel.getChildAt(i);
+            contentPanel.removeViewAt(i);
+            if (child instanceof Button) {
+                CocoaDialogViewPool.releaseButton(mHostContext, (Button) child);
+            } else if (child instanceof ListView) {
+                releaseActionList((ListView) child);
+            }
+        }
+        contentPanel.setActionOrientation(CocoaDialogLayout.HORIZONTAL);
+        CocoaDialogViewPool.release(mHostContext, mSpec.style, contentPanel);
     }
 
     /**
-     * Get the edit text list that added to this {@link CocoaDialog}.
+     * Get the edit text list that added to this {@link CocoaDialog}, the edit texts are built if this {@link CocoaDialog} has not been shown yet.
      *
      * @return The list of the edit texts.
      */
     @Nullable
     public List<EditText> getEditTextList() {
+        buildInputs();
         if (mEditTextList != null) {
             return new ArrayList<>(mEditTextList);
         }
@@ -191,143 +870,539 @@ public final class CocoaDialog extends Dialog {
     }
 
     /**
-     * Set the current progress to the progress bar.
+     * Append a line to the message, may be called from any thread. Lines are shown in one batch per display frame,
+     * only the last lines up to the retained count are kept.
+     *
+     * @param line The line to append, ignored if {@link Builder#setMessageStreaming(int, boolean)} not called.
+     */
+    public void appendMessageLine(CharSequence line) {
+        if (mMessageStream != null) {
+            mMessageStream.append(line);
+        }
+    }
+
+    /**
+     * Replace the message of this {@link CocoaDialog}, such as a status updated while it is showing, may be called from any thread.
+     * Updates are applied at most once per display frame, only the latest message is shown.
+     *
+     * @param message The new message, null to hide the message. Ignored on the style of {@link CocoaDialogStyle#custom}
+     *                or if {@link Builder#setMessageStreaming(int, boolean)} called.
+     */
+    public void setMessage(@Nullable CharSequence message) {
+        if (mSpec.style != CocoaDialogStyle.custom && mMessageStream == null) {
+            mPendingMessage.set(message != null ? message : "");
+            mMessageUpdater.schedule();
+        }
+    }
+
+    private void applyPendingMessage() {
+        CharSequence message = mPendingMessage.getAndSet(null);
+        if (message == null) {
+            return;
+        }
+        mMessageOverride = message;
+        if (mContentPanel != null) {
+            TextView messageText = mContentPanel.findViewById(R.id.message);
+            updateText(messageText, message.length() > 0 ? message : null);
+        }
+    }
+
+    /**
+     * @return The message set by the builder, resolved on the calling thread.
+     */
+    CharSequence resolveSpecMessage() {
+        return mSpec.resolveMessage(getContext());
+    }
+
+    /**
+     * Set the current progress to the progress bar, may be called from any thread.
+     * Updates are applied at most once per display frame, only the latest value is shown.
      *
      * @param progress The current progress value, ignored if {@link Builder#addProgressBar(ProgressBarBuildHandler)} not called.
      */
     public void setProgress(int progress) {
-        if (mProgressBar != null) {
-            int newProgress = progress < 0 ? 0 : progress > mProgressBar.getMax() ? mProgressBar.getMax() : progress;
-            mProgressBar.setProgress(newProgress);
+        if (mSpec.progressBarHandler != null) {
+            mPendingProgress.set(progress < 0 ? 0 : progress);
+            mProgressUpdater.schedule();
+        }
+    }
+
+    /**
+     * Set the current progress to the progress bar as a fraction of its max value, may be called from any thread.
+     * Updates are applied at most once per display frame, only the latest value is shown.
+     *
+     * @param fraction The current progress from 0 to 1, ignored if {@link Builder#addProgressBar(ProgressBarBuildHandler)} not called.
+     */
+    public void setProgressFraction(float fraction) {
+        if (mSpec.progressBarHandler != null) {
+            float newFraction = fraction < 0 || Float.isNaN(fraction) ? 0 : fraction > 1 ? 1 : fraction;
+            mPendingProgress.set(PENDING_FRACTION_FLAG | (Float.floatToIntBits(newFraction) & 0xFFFFFFFFL));
+            mProgressUpdater.schedule();
         }
     }
 
     /**
-     * Get the the current progress of the progress bar.
+     * Get the the current progress of the progress bar, including the progress set but not yet shown.
      *
      * @return The current progress, return 0 if {@link Builder#addProgressBar(ProgressBarBuildHandler)} did not called.
      */
     public int getProgress() {
-        return mProgressBar != null ? mProgressBar.getProgress() : 0;
+        if (mSpec.progressBarHandler == null) {
+            return 0;
+        }
+        long pending = mPendingProgress.get();
+        if (pending == NO_PENDING_PROGRESS) {
+            return mProgressBar != null ? mProgressBar.getProgress() : 0;
+        }
+        return resolveProgress(pending);
     }
 
+    private void applyPendingProgress() {
+        if (mProgressBar == null) {
+            // 进度条尚未创建，保留待显示的进度
+            return;
+        }
+        long pending = mPendingProgress.getAndSet(NO_PENDING_PROGRESS);
+        if (pending != NO_PENDING_PROGRESS) {
+            mProgressBar.setProgress(resolveProgress(pending));
+        }
+    }
 
-    private void resolveActions() {
-        if (mPreferredStyle == CocoaDialogStyle.alert) {
-            resolveAlertActions();
-        } else {
-            resolveActionSheetActions();
+    private int resolveProgress(long pending) {
+        // 进度条创建前按ProgressBar的默认最大值100计算
+        int max = mProgressBar != null ? mProgressBar.getMax() : 100;
+        if ((pending & PENDING_FRACTION_FLAG) != 0) {
+            return Math.round(Float.intBitsToFloat((int) pending) * max);
         }
+        return pending > max ? max : (int) pending;
     }
 
-    private void resolveAlertActions() {
-        if (mActionList == null || mActionList.isEmpty()) {
-            mPanelBorder.setVisibility(View.GONE);
+
+    /**
+     * Add the action buttons in the order and with the backgrounds resolved by {@link CocoaDialogSpec}.
+     */
+    private void resolveActions() {
+        CocoaDialogSpec spec = mSpec;
+        mContentPanel.setActionOrientation(spec.actionOrientation);
+        if (spec.detachedAction != null) {
+            Button button = buildActionButton(spec.detachedAction, newDetachedActionParams());
+            setActionBackground(button, R.drawable.cocoa_dialog_corner_radius);
+            mContentPanel.addView(button);
+        }
+        if (spec.actions.isEmpty()) {
             return;
         }
-        boolean isHeaderHidden = mTitle == null && mMessage == null && (mEditTextList == null || mEditTextList.isEmpty());
-        if (isHeaderHidden || mActionList.size() > 2) {
-            // 没有title、message且无输入框或者拥有3个以上Action时，每个Action Button占据整行空间
-            mPanelBorder.setVisibility(isHeaderHidden ? View.GONE : View.VISIBLE);
-            mButtonPanel.setOrientation(LinearLayout.VERTICAL);
-            if (isHeaderHidden) {
-                mButtonPanel.setBackgroundResource(com.berwin.cocoadialog.R.drawable.cocoa_dialog_corner_radius);
-            }
-            if (mActionList.get(0).getStyle() == CocoaDialogActionStyle.cancel && mActionList.size() > 1) { // 调整取消按钮放到最下方
-                CocoaDialogAction cancelAction = mActionList.remove(0);
-                mActionList.add(cancelAction);
-            }
-            LinearLayout.LayoutParams buttonParams = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, DensityUtil.dip2px(getContext(), 45));
-            LinearLayout.LayoutParams borderParams = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, DensityUtil.dip2px(getContext(), 1));
-            for (int i = 0; i < mActionList.size(); i++) {
-                final CocoaDialogAction action = mActionList.get(i);
-                Button button = buildActionButton(action, buttonParams);
-                button.setBackgroundResource(i == mActionList.size() - 1 ? (i == 0 ? R.drawable.cocoa_dialog_corner_radius : R.drawable.cocoa_dialog_bottom_radius) : (i == 0 && isHeaderHidden ? R.drawable.cocoa_dialog_top_radius : android.R.color.white));
-                mButtonPanel.addView(button);
-                View border = new View(getContext());
-                border.setBackgroundColor(0xFFC8C7CC);
-                border.setLayoutParams(borderParams);
-                mButtonPanel.addView(border);
-            }
-            mButtonPanel.removeViewAt(mButtonPanel.getChildCount() - 1);
-        } else {
-            mPanelBorder.setVisibility(View.VISIBLE);
-            mButtonPanel.setOrientation(LinearLayout.HORIZONTAL);
-            LinearLayout.LayoutParams buttonParams = new LinearLayout.LayoutParams(0, DensityUtil.dip2px(getContext(), 43));
-            buttonParams.weight = 1;
-            LinearLayout.LayoutParams borderParams = new LinearLayout.LayoutParams(DensityUtil.dip2px(getContext(), 1), ViewGroup.LayoutParams.MATCH_PARENT);
-            for (int i = 0; i < mActionList.size(); i++) {
-                final CocoaDialogAction action = mActionList.get(i);
-                Button button = buildActionButton(action, buttonParams);
-                button.setBackgroundResource(i == 0 ? (i == mActionList.size() - 1 ? R.drawable.cocoa_dialog_bottom_radius : R.drawable.cocoa_dialog_bottom_left_radius) : R.drawable.cocoa_dialog_bottom_right_radius);
-                mButtonPanel.addView(button);
-                // 添加按钮分隔线
-                View border = new View(getContext());
-                border.setBackgroundColor(0xFFC8C7CC);
-                border.setLayoutParams(borderParams);
-                mButtonPanel.addView(border);
-            }
-            mButtonPanel.removeViewAt(mButtonPanel.getChildCount() - 1);
-        }
-    }
-
-    private void resolveActionSheetActions() {
-        if (mActionList == null || mActionList.isEmpty()) {
-            mPanelBorder.setVisibility(View.GONE);
-            mHeaderPanel.setBackgroundResource(com.berwin.cocoadialog.R.drawable.cocoa_dialog_corner_radius);
+        if (isActionListShown(spec)) {
+            mContentPanel.addView(buildActionListView(spec.actions));
             return;
         }
-        if (mActionList.get(0).getStyle() == CocoaDialogActionStyle.cancel) {
-            LinearLayout.LayoutParams cancelParams = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, DensityUtil.dip2px(getContext(), 50));
-            mHeaderPanel.setBackgroundResource(mActionList.size() == 1 ? com.berwin.cocoadialog.R.drawable.cocoa_dialog_corner_radius : com.berwin.cocoadialog.R.drawable.cocoa_dialog_top_radius);
-            final CocoaDialogAction cancelAction = mActionList.remove(0);
-            cancelParams.topMargin = DensityUtil.dip2px(getContext(), 10);
-            Button button = buildActionButton(cancelAction, cancelParams);
-            button.setBackgroundResource(com.berwin.cocoadialog.R.drawable.cocoa_dialog_corner_radius);
+        CocoaDialogLayout.LayoutParams buttonParams = newActionParams(spec);
+        for (int i = 0; i < spec.actions.size(); i++) {
+            Button button = buildActionButton(spec.actions.get(i), buttonParams);
+            setActionBackground(button, spec.getActionBackground(i));
             mContentPanel.addView(button);
         }
-        boolean isHeaderHidden = mTitle == null && mMessage == null;
-        if (isHeaderHidden) {
-            mPanelBorder.setVisibility(View.GONE);
-            mButtonPanel.setBackgroundResource(com.berwin.cocoadialog.R.drawable.cocoa_dialog_corner_radius);
-        }
-        LinearLayout.LayoutParams buttonParams = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, DensityUtil.dip2px(getContext(), 50));
-        LinearLayout.LayoutParams borderParams = new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, DensityUtil.dip2px(getContext(), 1));
-        for (int i = 0; i < mActionList.size(); i++) {
-            CocoaDialogAction action = mActionList.get(i);
-            Button button = buildActionButton(action, buttonParams);
-            button.setBackgroundResource(i == 0 && isHeaderHidden ? (i == mActionList.size() - 1 ? R.drawable.cocoa_dialog_corner_radius : R.drawable.cocoa_dialog_top_radius) : (i == mActionList.size() - 1 ? R.drawable.cocoa_dialog_bottom_radius : android.R.color.white));
-            mButtonPanel.addView(button);
-            // 按钮分隔线
-            View border = new View(getContext());
-            border.setBackgroundColor(0xFFC8C7CC);
-            border.setLayoutParams(borderParams);
-            mButtonPanel.addView(border);
-        }
-        mButtonPanel.removeViewAt(mButtonPanel.getChildCount() - 1);
-    }
-
-    private Button buildActionButton(CocoaDialogAction cocoaDialogAction, ViewGroup.LayoutParams layoutParams) {
-        final CocoaDialogAction action = cocoaDialogAction;
-        Button button = new Button(getContext(), null, android.R.attr.borderlessButtonStyle);
-        button.setFocusable(false);
-        button.setAllCaps(false);
-        button.setTextSize(TypedValue.COMPLEX_UNIT_SP, 15);
-        button.setLayoutParams(layoutParams);
-        button.setText(action.getTitle());
-        button.setTextColor(action.getColor());
-        button.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                dismiss();
-                if (action.getOnClickListener() != null) {
-                    action.getOnClickListener().onClick(CocoaDialog.this);
+    }
+
+    private static boolean isActionListShown(CocoaDialogSpec spec) {
+        return spec.style == CocoaDialogStyle.actionSheet && spec.virtualized && !spec.actions.isEmpty();
+    }
+
+    private CocoaDialogLayout.LayoutParams newDetachedActionParams() {
+        DimensionCache dimens = DimensionCache.get(getContext());
+        CocoaDialogLayout.LayoutParams params = new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, dimens.dip2px(50), CocoaDialogLayout.LayoutParams.ROLE_DETACHED_ACTION);
+        params.topMargin = dimens.dip2px(10);
+        return params;
+    }
+
+    private CocoaDialogLayout.LayoutParams newActionParams(CocoaDialogSpec spec) {
+        DimensionCache dimens = DimensionCache.get(getContext());
+        if (spec.style == CocoaDialogStyle.actionSheet) {
+            return new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, dimens.dip2px(50), CocoaDialogLayout.LayoutParams.ROLE_ACTION);
+        } else if (spec.actionOrientation == CocoaDialogLayout.VERTICAL) {
+            // 没有title、message且无输入框或者拥有3个以上Action时，每个Action Button占据整行空间
+            return new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, dimens.dip2px(45), CocoaDialogLayout.LayoutParams.ROLE_ACTION);
+        }
+        // 宽度为0的按钮由CocoaDialogLayout平分剩余宽度
+        return new CocoaDialogLayout.LayoutParams(0, dimens.dip2px(43), CocoaDialogLayout.LayoutParams.ROLE_ACTION);
+    }
+
+    /**
+     * Update the title, message and actions of this {@link CocoaDialog} in place, only the views that differ from the
+     * given spec are changed. The buttons of the actions with the same title, style and color are kept and moved if needed,
+     * the others are removed or inserted, and the backgrounds and separators follow the new order. The actions guarded by
+     * the edit text validator follow the new spec and are validated again. The edit texts, the progress bar, the search
+     * field and the window are not changed, so the spec should be built with the same inputs.
+     *
+     * @param spec The new spec, must have the same {@link CocoaDialogStyle}.
+     */
+    public void update(@NonNull CocoaDialogSpec spec) {
+        if (spec.style != mSpec.style) {
+            throw new IllegalArgumentException("The style of a cocoa dialog can not be changed by update.");
+        }
+        CocoaDialogSpec oldSpec = mSpec;
+        mSpec = spec;
+        if (mDisabledActions != null && spec.validator != null && !spec.editTextHandlers.isEmpty()) {
+            // 不再受控的按钮恢复可用，新的受控按钮在校验通过前禁用
+            mDisabledActions.removeAll(oldSpec.guardedActions);
+            mDisabledActions.addAll(spec.guardedActions);
+            if (mValidation != null) {
+                mValidation.setGuardedActions(spec.guardedActions);
+            }
+        }
+        // 后台构建的内容视图已过期，显示时按新的spec重新构建
+        mPreparedPanel = null;
+        mActionFilter = null;
+        if (mActionSearch != null) {
+            // 按新的按钮重建索引，完成后重新应用当前的搜索
+            mActionSearch.setActions(spec.actions);
+        }
+        mMessageOverride = null;
+        mPendingMessage.set(null);
+        if (mContentPanel == null) {
+            // 尚未显示或已关闭，下次显示时按新的spec构建
+            return;
+        }
+        TextView titleText = mContentPanel.findViewById(R.id.title);
+        updateText(titleText, spec.resolveTitle(getContext()));
+        if (mMessageStream == null) {
+            // 流式消息的内容由appendMessageLine维护
+            TextView messageText = mContentPanel.findViewById(R.id.message);
+            updateText(messageText, spec.resolveMessage(getContext()));
+        }
+        ListView listView = null;
+        for (int i = 2; i < mContentPanel.getChildCount(); i++) {
+            if (mContentPanel.getChildAt(i) instanceof ListView) {
+                listView = (ListView) mContentPanel.getChildAt(i);
+            }
+        }
+        if (isActionListShown(spec) != (listView != null)) {
+            // 列表模式变化时重新构建全部按钮
+            removeActionViews();
+            mBoundActions.clear();
+            resolveActions();
+            return;
+        }
+        mContentPanel.setActionOrientation(spec.actionOrientation);
+        updateActionButtons(listView == null);
+        if (listView != null) {
+            ((ActionSheetAdapter) listView.getAdapter()).setActions(spec.actions, mBoundActions.size());
+            mBoundActions.addAll(spec.actions);
+        }
+    }
+
+    private static void updateText(TextView textView, CharSequence text) {
+        if (text == null) {
+            textView.setVisibility(View.GONE);
+            return;
+        }
+        if (!TextUtils.equals(textView.getText(), text)) {
+            textView.setText(text);
+        }
+        textView.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Match the current action buttons to the actions of {@link #mSpec} by title, style and color, remove the unmatched
+     * buttons, insert new ones and put them in order.
+     */
+    private void updateActionButtons(boolean includePanelActions) {
+        CocoaDialogSpec spec = mSpec;
+        List<CocoaDialogAction> actions = new ArrayList<>(spec.actions.size() + 1);
+        if (spec.detachedAction != null) {
+            actions.add(spec.detachedAction);
+        }
+        if (includePanelActions) {
+            actions.addAll(spec.actions);
+        }
+        List<Button> oldButtons = new ArrayList<>();
+        int base = -1;
+        for (int i = 2; i < mContentPanel.getChildCount(); i++) {
+            View child = mContentPanel.getChildAt(i);
+            if (child instanceof Button && child.getTag(R.id.cocoa_dialog_action_index) != null) {
+                oldButtons.add((Button) child);
+                base = base < 0 ? i : base;
+            }
+        }
+        if (base < 0) {
+            base = mContentPanel.getChildCount();
+        }
+        Button[] buttons = new Button[actions.size()];
+        for (int i = 0; i < actions.size(); i++) {
+            for (int j = 0; j < oldButtons.size(); j++) {
+                Button button = oldButtons.get(j);
+                if (button != null && isSameAppearance(mBoundActions.get((Integer) button.getTag(R.id.cocoa_dialog_action_index)), actions.get(i))) {
+                    buttons[i] = button;
+                    oldButtons.set(j, null);
+                    break;
+                }
+            }
+        }
+        for (Button button : oldButtons) {
+            if (button != null) {
+                mContentPanel.removeView(button);
+                CocoaDialogViewPool.releaseButton(mHostContext, button);
+            }
+        }
+        mBoundActions.clear();
+        CocoaDialogLayout.LayoutParams actionParams = newActionParams(spec);
+        for (int i = 0; i < actions.size(); i++) {
+            CocoaDialogAction action = actions.get(i);
+            boolean detached = action == spec.detachedAction;
+            CocoaDialogLayout.LayoutParams params = detached ? newDetachedActionParams() : actionParams;
+            Button button = buttons[i];
+            if (button == null) {
+                button = buildActionButton(action, params);
+                mContentPanel.addView(button, base + i);
+            } else {
+                if (mContentPanel.getChildAt(base + i) != button) {
+                    // 之前的位置都已排好，需要移动的按钮只会在当前位置之后
+                    mContentPanel.removeView(button);
+                    mContentPanel.addView(button, base + i);
+                }
+                CocoaDialogLayout.LayoutParams oldParams = (CocoaDialogLayout.LayoutParams) button.getLayoutParams();
+                if (oldParams.width != params.width || oldParams.height != params.height || oldParams.role != params.role) {
+                    button.setLayoutParams(params);
+                }
+                bindActionButton(button, action);
+            }
+            setActionBackground(button, detached ? R.drawable.cocoa_dialog_corner_radius : spec.getActionBackground(i - (spec.detachedAction != null ? 1 : 0)));
+        }
+    }
+
+    private boolean isSameAppearance(CocoaDialogAction a, CocoaDialogAction b) {
+        return a.getStyle() == b.getStyle() && a.getColor() == b.getColor() && TextUtils.equals(a.getTitle(getContext()), b.getTitle(getContext()));
+    }
+
+    /**
+     * Remove the action buttons and the action list, the buttons are given back to {@link CocoaDialogViewPool}.
+     */
+    private void removeActionViews() {
+        for (int i = mContentPanel.getChildCount() - 1; i >= 2; i--) {
+            View child = mContentPanel.getChildAt(i);
+            if (child instanceof ListView || (child instanceof Button && child.getTag(R.id.cocoa_dialog_action_index) != null)) {
+                mContentPanel.removeViewAt(i);
+                if (child instanceof Button) {
+                    CocoaDialogViewPool.releaseButton(mHostContext, (Button) child);
+                } else {
+                    releaseActionList((ListView) child);
                 }
             }
-        });
+        }
+    }
+
+    /**
+     * Give the buttons of a removed action list back to {@link CocoaDialogViewPool}, both the visible and the scrapped ones.
+     */
+    private void releaseActionList(ListView listView) {
+        ActionSheetAdapter adapter = (ActionSheetAdapter) listView.getAdapter();
+        // 清空适配器后列表移除可见的按钮并清空废弃视图的缓存，按钮不再有父视图
+        listView.setAdapter(null);
+        if (adapter != null) {
+            adapter.releaseButtons();
+        }
+    }
+
+    /**
+     * Build a scrollable list for the actions of an action sheet, only the visible action buttons are created and they are recycled while scrolling.
+     */
+    private ListView buildActionListView(List<CocoaDialogAction> actions) {
+        ListView listView = new ListView(getContext());
+        listView.setLayoutParams(new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT, CocoaDialogLayout.LayoutParams.ROLE_ACTION));
+        listView.setDivider(new ColorDrawable(0xFFC8C7CC));
+        listView.setDividerHeight(DimensionCache.get(getContext()).dip2px(1));
+        listView.setSelector(android.R.color.transparent);
+        listView.setCacheColorHint(Color.TRANSPARENT);
+        listView.setVerticalFadingEdgeEnabled(false);
+        listView.setAdapter(new ActionSheetAdapter(actions, mBoundActions.size()));
+        mBoundActions.addAll(actions);
+        return listView;
+    }
+
+    /**
+     * Show only the actions matching a search of the search field, called on the main thread by {@link ActionSheetSearch}.
+     *
+     * @param filter The result of the search, null to show all the actions.
+     */
+    void applyActionFilter(ActionSearchIndex.Result filter) {
+        mActionFilter = filter;
+        if (mContentPanel == null) {
+            return;
+        }
+        for (int i = 2; i < mContentPanel.getChildCount(); i++) {
+            View child = mContentPanel.getChildAt(i);
+            if (child instanceof ListView) {
+                ((ActionSheetAdapter) ((ListView) child).getAdapter()).notifyDataSetChanged();
+            }
+        }
+    }
+
+    private Button buildActionButton(CocoaDialogAction action, ViewGroup.LayoutParams layoutParams) {
+        Button button;
+        if (mPreparing) {
+            // 复用池仅在主线程访问，后台构建时直接创建
+            button = CocoaDialogViewPool.newButton(getContext());
+            mPreparedViewCount++;
+        } else {
+            button = CocoaDialogViewPool.acquireButton(mHostContext, getContext());
+        }
+        button.setLayoutParams(layoutParams);
+        bindActionButton(button, action);
         return button;
     }
 
+    private void bindActionButton(Button button, CocoaDialogAction action) {
+        String title = action.getTitle(getContext());
+        if (!TextUtils.equals(button.getText(), title)) {
+            button.setText(title);
+        }
+        applyActionState(button, action);
+        button.setTag(R.id.cocoa_dialog_action_index, mBoundActions.size());
+        button.setOnClickListener(mActionClickDispatcher);
+        mBoundActions.add(action);
+    }
+
+    /**
+     * Enable or disable the button of an action, a disabled button shows a faded title and ignores clicks.
+     *
+     * @param action  The action added to this {@link CocoaDialog}.
+     * @param enabled Whether the button is enabled.
+     */
+    public void setActionEnabled(@NonNull CocoaDialogAction action, boolean enabled) {
+        if (enabled == isActionEnabled(action)) {
+            return;
+        }
+        if (enabled) {
+            mDisabledActions.remove(action);
+        } else {
+            if (mDisabledActions == null) {
+                mDisabledActions = new HashSet<>();
+            }
+            mDisabledActions.add(action);
+        }
+        if (mContentPanel == null) {
+            return;
+        }
+        for (int i = 0; i < mContentPanel.getChildCount(); i++) {
+            View child = mContentPanel.getChildAt(i);
+            if (child instanceof Button && child.getTag(R.id.cocoa_dialog_action_index) != null
+                    && mBoundActions.get((Integer) child.getTag(R.id.cocoa_dialog_action_index)) == action) {
+                applyActionState((Button) child, action);
+            } else if (child instanceof ListView) {
+                ((BaseAdapter) ((ListView) child).getAdapter()).notifyDataSetChanged();
+            }
+        }
+    }
+
+    /**
+     * Get whether the button of an action is enabled.
+     *
+     * @param action The action added to this {@link CocoaDialog}.
+     * @return Whether the button is enabled.
+     */
+    public boolean isActionEnabled(@NonNull CocoaDialogAction action) {
+        return mDisabledActions == null || !mDisabledActions.contains(action);
+    }
+
+    private void applyActionState(Button button, CocoaDialogAction action) {
+        boolean enabled = isActionEnabled(action);
+        button.setEnabled(enabled);
+        // 禁用时标题颜色降低为40%的透明度
+        button.setTextColor(enabled ? action.getColor() : (action.getColor() & 0x00FFFFFF) | 0x66000000);
+    }
+
+    /**
+     * Set the background of an action button from {@link DrawableCache}, the resource is parsed only once per configuration.
+     */
+    @SuppressWarnings("deprecation")
+    private void setActionBackground(Button button, @DrawableRes int resId) {
+        Object current = button.getTag(R.id.cocoa_dialog_action_background);
+        if (current instanceof Integer && (Integer) current == resId) {
+            return;
+        }
+        button.setBackgroundDrawable(DrawableCache.get(getContext()).getPressableDrawable(resId));
+        button.setTag(R.id.cocoa_dialog_action_background, resId);
+    }
+
+    private class ActionSheetAdapter extends BaseAdapter {
+
+        private List<CocoaDialogAction> mActions;
+        private int mIndexOffset;
+        private final AbsListView.LayoutParams mButtonParams;
+        // 从复用池取出的按钮，列表移除时归还
+        private final List<Button> mButtons = new ArrayList<>();
+
+        ActionSheetAdapter(List<CocoaDialogAction> actions, int indexOffset) {
+            this.mActions = actions;
+            this.mIndexOffset = indexOffset;
+            this.mButtonParams = new AbsListView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, DimensionCache.get(getContext()).dip2px(50));
+        }
+
+        void setActions(List<CocoaDialogAction> actions, int indexOffset) {
+            this.mActions = actions;
+            this.mIndexOffset = indexOffset;
+            notifyDataSetChanged();
+        }
+
+        /**
+         * Give the buttons created for the list back to {@link CocoaDialogViewPool}, the list must no longer hold them.
+         */
+        void releaseButtons() {
+            for (Button button : mButtons) {
+                if (button.getParent() == null) {
+                    CocoaDialogViewPool.releaseButton(mHostContext, button);
+                }
+            }
+            mButtons.clear();
+        }
+
+        @Override
+        public int getCount() {
+            return mActionFilter != null ? mActionFilter.getPositions().length : mActions.size();
+        }
+
+        @Override
+        public CocoaDialogAction getItem(int position) {
+            return mActions.get(getActionPosition(position));
+        }
+
+        /**
+         * Map the position in the list to the position in the actions by the search result.
+         */
+        private int getActionPosition(int position) {
+            return mActionFilter != null ? mActionFilter.getPositions()[position] : position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            int actionPosition = getActionPosition(position);
+            CocoaDialogAction action = mActions.get(actionPosition);
+            Button button;
+            if (convertView instanceof Button) {
+                button = (Button) convertView;
+            } else {
+                button = CocoaDialogViewPool.acquireButton(mHostContext, getContext());
+                button.setLayoutParams(mButtonParams);
+                button.setOnClickListener(mActionClickDispatcher);
+                mButtons.add(button);
+            }
+            if (mActionFilter != null) {
+                button.setText(ActionSearchIndex.highlight(action.getTitle(getContext()), mActionFilter.getTokens()));
+            } else {
+                button.setText(action.getTitle(getContext()));
+            }
+            applyActionState(button, action);
+            button.setTag(R.id.cocoa_dialog_action_index, mIndexOffset + actionPosition);
+            // 与非列表模式保持一致的圆角规则，过滤后最后一个按钮使用底部圆角
+            setActionBackground(button, mSpec.getActionBackground(position == getCount() - 1 ? mActions.size() - 1 : position));
+            return button;
+        }
+    }
 
     public static class Builder {
 
@@ -346,10 +1421,23 @@ public final class CocoaDialog extends Dialog {
 
         int animStyleRes = 0;
         CharSequence title;
+        int titleRes;
         CharSequence message;
-        ProgressBar progressBar;
-        List<EditText> editTextList;
+        int messageRes;
+        ProgressBarBuildHandler progressBarHandler;
+        List<EditTextConfigurationHandler> editTextHandlers;
         List<CocoaDialogAction> actionList;
+        boolean virtualized;
+        Executor actionSearchExecutor;
+        Executor textPrecomputeExecutor;
+        CocoaDialogMetrics metrics;
+        int streamingMaxLines;
+        boolean streamingAutoScroll;
+        boolean sharedWindow;
+        EditTextValidator validator;
+        Executor validationExecutor;
+        long validationDebounceMillis;
+        CocoaDialogAction[] guardedActions;
 
 
         public Builder(@NonNull Context context) {
@@ -480,6 +1568,7 @@ public final class CocoaDialog extends Dialog {
          */
         public Builder setTitle(CharSequence title) {
             this.title = title;
+            this.titleRes = 0;
             return this;
         }
 
@@ -491,7 +1580,8 @@ public final class CocoaDialog extends Dialog {
          */
         public Builder setTitle(@StringRes int titleResId) {
             if (titleResId != 0) {
-                this.title = context.getString(titleResId);
+                this.titleRes = titleResId;
+                this.title = null;
             }
             return this;
         }
@@ -504,6 +1594,7 @@ public final class CocoaDialog extends Dialog {
          */
         public Builder setMessage(CharSequence message) {
             this.message = message;
+            this.messageRes = 0;
             return this;
         }
 
@@ -516,7 +1607,8 @@ public final class CocoaDialog extends Dialog {
          */
         public Builder setMessage(@StringRes int messageResId) {
             if (messageResId != 0) {
-                this.message = context.getString(messageResId);
+                this.messageRes = messageResId;
+                this.message = null;
             }
             return this;
         }
@@ -577,7 +1669,7 @@ public final class CocoaDialog extends Dialog {
          * @return {@link CocoaDialog.Builder} instance.
          */
         public Builder addAction(@StringRes int titleRes, @NonNull CocoaDialogActionStyle style, CocoaDialogAction.OnClickListener listener) {
-            return addAction(new CocoaDialogAction(context.getString(titleRes), style, listener));
+            return addAction(new CocoaDialogAction(titleRes, style, listener));
         }
 
         /**
@@ -590,46 +1682,151 @@ public final class CocoaDialog extends Dialog {
          * @return {@link CocoaDialog.Builder} instance.
          */
         public Builder addAction(@StringRes int titleRes, @NonNull CocoaDialogActionStyle style, @ColorInt int color, CocoaDialogAction.OnClickListener listener) {
-            return addAction(new CocoaDialogAction(context.getString(titleRes), style, color, listener));
+            return addAction(new CocoaDialogAction(titleRes, style, color, listener));
+        }
+
+        /**
+         * Set whether the actions of this {@link CocoaDialog} are shown in a scrollable list, only effective on the style of {@link CocoaDialogStyle#actionSheet}.
+         * Only the visible action buttons are created and they are recycled while scrolling, recommended for a large count of actions.
+         *
+         * @param virtualized Whether the actions are shown in a scrollable list.
+         * @return {@link CocoaDialog.Builder} instance.
+         */
+        public Builder setVirtualized(boolean virtualized) {
+            this.virtualized = virtualized;
+            return this;
+        }
+
+        /**
+         * Show a search field at the top of this {@link CocoaDialog} to filter the actions by their titles, only effective on the style
+         * of {@link CocoaDialogStyle#actionSheet}. The actions are shown in a scrollable list as by {@link #setVirtualized(boolean)}.
+         * An index of the titles is built on the executor once the dialog is built, and the titles are matched on it while the user types,
+         * a search superseded by newer input is skipped or its result dropped. The matched words of the titles are shown in bold.
+         *
+         * @param executor The background executor to build the index and run the searches on, null for no search field.
+         * @return {@link CocoaDialog.Builder} instance.
+         */
+        public Builder setActionSearchExecutor(@Nullable Executor executor) {
+            if (executor != null && preferredStyle != CocoaDialogStyle.actionSheet) {
+                throw new IllegalArgumentException("Action search can only be enabled on a cocoa dialog of style CocoaDialogStyle.actionSheet");
+            }
+            this.actionSearchExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Set an executor to lay out the title and message of this {@link CocoaDialog} in the background as soon as it is built,
+         * recommended for long or span-heavy messages, will be ignored on the style of {@link CocoaDialogStyle#custom}.
+         * On API 28 and above the text is handed to the text views as {@link android.text.PrecomputedText}.
+         *
+         * @param executor The background executor, null to lay out the text on the main thread when shown.
+         * @return {@link CocoaDialog.Builder} instance.
+         */
+        public Builder setTextPrecomputeExecutor(@Nullable Executor executor) {
+            this.textPrecomputeExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Validate the edit texts of this {@link CocoaDialog} while the user types, only effective on the style of {@link CocoaDialogStyle#alert}.
+         * The validator runs on the executor after the input has paused for the debounce time, a validation superseded by newer input
+         * is skipped or its result dropped. The guarded actions are disabled until the texts are valid.
+         *
+         * @param validator      The validator of the texts.
+         * @param executor       The background executor to run the validator on.
+         * @param debounceMillis The time in milliseconds the input must pause before validating.
+         * @param guardedActions The actions enabled only when the texts are valid, must be added to this builder.
+         * @return {@link CocoaDialog.Builder} instance.
+         */
+        public Builder setEditTextValidator(@NonNull EditTextValidator validator, @NonNull Executor executor, long debounceMillis, @NonNull CocoaDialogAction... guardedActions) {
+            if (preferredStyle != CocoaDialogStyle.alert) {
+                throw new IllegalArgumentException("EditTextValidator can only be set to a cocoa dialog of style CocoaDialogStyle.alert");
+            }
+            if (debounceMillis < 0) {
+                throw new IllegalArgumentException("Debounce time can not be negative.");
+            }
+            this.validator = validator;
+            this.validationExecutor = executor;
+            this.validationDebounceMillis = debounceMillis;
+            this.guardedActions = guardedActions;
+            return this;
+        }
+
+        /**
+         * Show the message of this {@link CocoaDialog} as a stream of lines appended by {@link CocoaDialog#appendMessageLine(CharSequence)},
+         * such as live logs, will be ignored on the style of {@link CocoaDialogStyle#custom}. The message set by {@link #setMessage(CharSequence)}
+         * becomes the first line, the message area scrolls when the lines exceed its height.
+         *
+         * @param maxRetainedLines The maximum count of the lines kept, older lines are dropped.
+         * @param autoScroll       Whether to scroll to the last line when lines are appended.
+         * @return {@link CocoaDialog.Builder} instance.
+         */
+        public Builder setMessageStreaming(int maxRetainedLines, boolean autoScroll) {
+            if (maxRetainedLines <= 0) {
+                throw new IllegalArgumentException("The count of the retained lines must be positive.");
+            }
+            this.streamingMaxLines = maxRetainedLines;
+            this.streamingAutoScroll = autoScroll;
+            return this;
+        }
+
+        /**
+         * Set whether this {@link CocoaDialog} is shown in the window shared by the dialogs of its activity instead of a window of its own.
+         * Successive dialogs in the shared window swap their content with a cross-fade, so a flow of chained dialogs adds only one window.
+         * Only effective on the style of {@link CocoaDialogStyle#alert} and the style of {@link CocoaDialogStyle#custom} with the gravity of
+         * {@link Gravity#CENTER}, and only if the context is an activity, other dialogs always use their own windows.
+         *
+         * @param sharedWindow Whether to show in the shared window of the activity.
+         * @return {@link CocoaDialog.Builder} instance.
+         */
+        public Builder setSharedWindow(boolean sharedWindow) {
+            this.sharedWindow = sharedWindow;
+            return this;
+        }
+
+        /**
+         * Set the {@link CocoaDialogMetrics} to receive the timings of this {@link CocoaDialog}, instead of the one set by
+         * {@link CocoaDialog#setDefaultMetrics(CocoaDialogMetrics)}.
+         *
+         * @param metrics The listener, null to use the default one.
+         * @return {@link CocoaDialog.Builder} instance.
+         */
+        public Builder setMetrics(@Nullable CocoaDialogMetrics metrics) {
+            this.metrics = metrics;
+            return this;
         }
 
         /**
          * Add an edit text to this {@link CocoaDialog}, only effective on the style of {@link CocoaDialogStyle#alert}.
          *
-         * @param configurationHandler The handler to configure the edit text, such as text color, hint and default text.
+         * @param configurationHandler The handler to configure the edit text, such as text color, hint and default text, invoked when the dialog is created.
          * @return {@link CocoaDialog.Builder} instance.
          */
         public Builder addEditText(EditTextConfigurationHandler configurationHandler) {
-            Context context = this.context;
             if (preferredStyle != CocoaDialogStyle.alert) {
                 throw new IllegalArgumentException("EditText can only be added to a cocoa dialog of style CocoaDialogStyle.alert");
             }
-            EditText editText = new EditText(context);
-            progressBar = null;
-            if (editTextList == null) {
-                editTextList = new ArrayList<>();
-            }
-            editTextList.add(editText);
-            if (configurationHandler != null) {
-                configurationHandler.onEditTextAdded(editText);
+            progressBarHandler = null;
+            if (editTextHandlers == null) {
+                editTextHandlers = new ArrayList<>();
             }
+            editTextHandlers.add(configurationHandler);
             return this;
         }
 
         /**
          * Add a progress bar to this {@link CocoaDialog}, only effective on a cocoa dialog with a style of {@link CocoaDialogStyle#alert}.
          *
-         * @param handler The handler to build and configure the progress bar.
+         * @param handler The handler to build and configure the progress bar, invoked when the dialog is created.
          * @return {@link CocoaDialog.Builder} instance.
          */
         public CocoaDialog.Builder addProgressBar(@NonNull ProgressBarBuildHandler handler) {
-            Context context = this.context;
             if (preferredStyle != CocoaDialogStyle.alert) {
                 throw new IllegalArgumentException("ProgressBar can only be added to a cocoa dialog of style CocoaDialogStyle.alert");
             }
-            progressBar = handler.build(context);
-            if (editTextList != null && editTextList.size() > 0) {
-                editTextList.clear();
+            progressBarHandler = handler;
+            if (editTextHandlers != null && editTextHandlers.size() > 0) {
+                editTextHandlers.clear();
             }
             return this;
         }
@@ -640,7 +1837,33 @@ public final class CocoaDialog extends Dialog {
          * @return {@link CocoaDialog} instance.
          */
         public CocoaDialog build() {
-            return new CocoaDialog(this);
+            CocoaDialogMetrics metrics = this.metrics != null ? this.metrics : sDefaultMetrics;
+            long startNanos = metrics != null ? System.nanoTime() : 0;
+            return new CocoaDialog(context, buildSpec(), metrics, startNanos);
+        }
+
+        /**
+         * Build a {@link CocoaDialog} whose content view is inflated and bound on the given executor, so that showing it
+         * on the main thread only attaches the window. The edit texts and the progress bar are still built on the main thread.
+         * Must be called on the main thread, the callback is invoked on the main thread when the dialog is ready, and never
+         * if the activity of the context is finishing or destroyed by then.
+         *
+         * @param executor The background executor.
+         * @param callback The callback to receive the dialog.
+         */
+        public void buildAsync(@NonNull Executor executor, @NonNull CocoaDialogBuildCallback callback) {
+            AsyncDialogBuilder.start(build(), context, executor, callback);
+        }
+
+        /**
+         * Build an immutable {@link CocoaDialogSpec} of the current settings, which can be cached and shown many times
+         * by {@link CocoaDialogSpec#build(Context)}. The edit texts and the progress bar are built by their handlers
+         * when each dialog is created.
+         *
+         * @return {@link CocoaDialogSpec} instance.
+         */
+        public CocoaDialogSpec buildSpec() {
+            return new CocoaDialogSpec(this);
         }
     }
 
@@ -1,13 +1,16 @@
 package com.berwin.cocoadialog;
 
 
+import android.content.Context;
 import android.graphics.Color;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
+import android.support.annotation.StringRes;
 
 public final class CocoaDialogAction {
 
     private final String title;
+    private final int titleRes;
     private final CocoaDialogActionStyle style;
     private final int color;
     private final OnClickListener listener;
@@ -31,14 +34,41 @@ public final class CocoaDialogAction {
      * @param listener The click listener, when user click the button {@link CocoaDialogAction.OnClickListener#onClick(CocoaDialog)} would be called.
      */
     public CocoaDialogAction(String title, @NonNull CocoaDialogActionStyle style, @ColorInt int color, OnClickListener listener) {
+        this(title, 0, style, color, listener);
+    }
+
+    /**
+     * An action for a {@link CocoaDialog}, appears as a button. The title is resolved when the dialog is shown.
+     *
+     * @param titleRes The string resource id of the action's title.
+     * @param style    The {@link CocoaDialogActionStyle} of the action, {@link CocoaDialogActionStyle#cancel} always lay at the left or bottom of the actions, {@link CocoaDialogActionStyle#destructive}'s text would be red.
+     * @param listener The click listener, when user click the button {@link CocoaDialogAction.OnClickListener#onClick(CocoaDialog)} would be called.
+     */
+    public CocoaDialogAction(@StringRes int titleRes, @NonNull CocoaDialogActionStyle style, OnClickListener listener) {
+        this(titleRes, style, style == CocoaDialogActionStyle.destructive ? Color.RED : 0xFF007AFF, listener);
+    }
+
+    /**
+     * An action for a {@link CocoaDialog}, appears as a button. The title is resolved when the dialog is shown.
+     *
+     * @param titleRes The string resource id of the action's title.
+     * @param color    The {@link Color} of the action's title.
+     * @param listener The click listener, when user click the button {@link CocoaDialogAction.OnClickListener#onClick(CocoaDialog)} would be called.
+     */
+    public CocoaDialogAction(@StringRes int titleRes, @NonNull CocoaDialogActionStyle style, @ColorInt int color, OnClickListener listener) {
+        this(null, titleRes, style, color, listener);
+    }
+
+    private CocoaDialogAction(String title, int titleRes, CocoaDialogActionStyle style, int color, OnClickListener listener) {
         this.title = title;
+        this.titleRes = titleRes;
         this.style = style;
         this.listener = listener;
         this.color = color;
     }
 
-    String getTitle() {
-        return title;
+    String getTitle(Context context) {
+        return title == null && titleRes != 0 ? context.getString(titleRes) : title;
     }
 
     CocoaDialogActionStyle getStyle() {
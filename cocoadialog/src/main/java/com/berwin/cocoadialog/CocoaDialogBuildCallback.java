@@ -0,0 +1,13 @@
+package com.berwin.cocoadialog;
+
+import android.support.annotation.NonNull;
+
+public interface CocoaDialogBuildCallback {
+    /**
+     * Called on the main thread when the dialog built by
+     * {@link CocoaDialog.Builder#buildAsync(java.util.concurrent.Executor, CocoaDialogBuildCallback)} is ready to show.
+     *
+     * @param dialog The dialog, its content view has been inflated and bound.
+     */
+    void onDialogBuilt(@NonNull CocoaDialog dialog);
+}
@@ -0,0 +1,458 @@
+package com.berwin.cocoadialog;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.IntDef;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.berwin.cocoadialog.utils.DimensionCache;
+import com.berwin.cocoadialog.utils.DrawableCache;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * The content layout of the {@link CocoaDialogStyle#alert} and {@link CocoaDialogStyle#actionSheet} styles.
+ *
+ * <p>Children are laid out in one measure and layout pass without any intermediate container: the header
+ * children (title, message, inputs and progress bar) are stacked at the top of a rounded panel, followed by
+ * the action children, arranged vertically or horizontally with equal widths, and finally the detached action
+ * children (the cancel action of an action sheet) below the panel. The separators between the header and the
+ * actions, and between adjacent actions, are drawn by the layout itself rather than by extra child views.</p>
+ *
+ * <p>Every child is measured once, except a horizontal action with a {@code WRAP_CONTENT} width and a
+ * {@code MATCH_PARENT} height: its width is needed before the height of the row is known, so it is measured again
+ * at the height of the row. The actions of the dialog itself never use this combination.</p>
+ */
+public class CocoaDialogLayout extends ViewGroup {
+
+    public static final int HORIZONTAL = 0;
+    public static final int VERTICAL = 1;
+
+    @IntDef({HORIZONTAL, VERTICAL})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Orientation {
+    }
+
+    private int mActionOrientation = HORIZONTAL;
+
+    private final int mHeaderPaddingLeft;
+    private final int mHeaderPaddingTop;
+    private final int mHeaderPaddingRight;
+    private final int mHeaderPaddingBottom;
+
+    private Drawable mPanelBackground;
+    private final Paint mSeparatorPaint = new Paint();
+    private int mSeparatorThickness;
+
+    // 布局时计算出的面板区域，用于绘制背景和分隔线
+    private int mHeaderBottom;
+    private int mActionTop;
+    private int mPanelBottom;
+    private boolean mHasHeader;
+    private boolean mHasActions;
+
+    public CocoaDialogLayout(Context context) {
+        this(context, null);
+    }
+
+    public CocoaDialogLayout(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public CocoaDialogLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        DimensionCache dimens = DimensionCache.get(context);
+        mHeaderPaddingLeft = dimens.dip2px(12);
+        mHeaderPaddingTop = dimens.dip2px(16);
+        mHeaderPaddingRight = dimens.dip2px(12);
+        mHeaderPaddingBottom = dimens.dip2px(16);
+        mSeparatorThickness = dimens.dip2px(1);
+        mSeparatorPaint.setColor(0xFFC8C7CC);
+        setPanelBackgroundResource(R.drawable.cocoa_dialog_corner_radius);
+        setWillNotDraw(false);
+    }
+
+    /**
+     * Set how the action children are arranged.
+     *
+     * @param orientation {@link #HORIZONTAL} to share the width equally, or {@link #VERTICAL} to stack the actions.
+     */
+    public void setActionOrientation(@Orientation int orientation) {
+        if (mActionOrientation != orientation) {
+            mActionOrientation = orientation;
+            requestLayout();
+        }
+    }
+
+    @Orientation
+    public int getActionOrientation() {
+        return mActionOrientation;
+    }
+
+    /**
+     * Set the background drawn behind the header and action children.
+     *
+     * @param resId The drawable resource id, 0 to remove the background.
+     */
+    public void setPanelBackgroundResource(@DrawableRes int resId) {
+        mPanelBackground = resId == 0 ? null : DrawableCache.get(getContext()).getDrawable(resId);
+        invalidate();
+    }
+
+    /**
+     * Set the color of the separators drawn between the header and the actions, and between adjacent actions.
+     *
+     * @param color The separator color.
+     */
+    public void setSeparatorColor(@ColorInt int color) {
+        mSeparatorPaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * Set the thickness of the separators, as height between vertical actions and as width between horizontal actions.
+     *
+     * @param thickness The separator thickness in pixels.
+     */
+    public void setSeparatorThickness(int thickness) {
+        if (mSeparatorThickness != thickness) {
+            mSeparatorThickness = Math.max(0, thickness);
+            requestLayout();
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED ? getSuggestedMinimumWidth() : MeasureSpec.getSize(widthMeasureSpec);
+        final int panelWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+        final int panelWidthSpec = MeasureSpec.makeMeasureSpec(panelWidth, MeasureSpec.EXACTLY);
+        final int count = getChildCount();
+
+        int headerHeight = 0;
+        int detachedHeight = 0;
+        int actionCount = 0;
+
+        // 先测量头部及独立按钮，剩余的高度留给按钮区域（如可滚动的按钮列表）
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (lp.role == LayoutParams.ROLE_ACTION) {
+                actionCount++;
+                continue;
+            }
+            final int horizontalPadding = lp.role == LayoutParams.ROLE_HEADER ? mHeaderPaddingLeft + mHeaderPaddingRight : 0;
+            child.measure(getChildMeasureSpec(panelWidthSpec, horizontalPadding + lp.leftMargin + lp.rightMargin, lp.width),
+                    getChildMeasureSpec(heightMeasureSpec, 0, lp.height == MATCH_PARENT ? WRAP_CONTENT : lp.height));
+            if (lp.role == LayoutParams.ROLE_HEADER) {
+                headerHeight += lp.topMargin + child.getMeasuredHeight() + lp.bottomMargin;
+            } else {
+                detachedHeight += lp.topMargin + child.getMeasuredHeight() + lp.bottomMargin;
+            }
+        }
+
+        mHasHeader = headerHeight > 0;
+        mHasActions = actionCount > 0;
+        int height = getPaddingTop() + getPaddingBottom() + detachedHeight;
+        if (mHasHeader) {
+            height += mHeaderPaddingTop + headerHeight + mHeaderPaddingBottom;
+        }
+        if (mHasHeader && mHasActions) {
+            height += mSeparatorThickness;
+        }
+        if (mHasActions) {
+            height += mActionOrientation == VERTICAL
+                    ? measureVerticalActions(panelWidthSpec, heightMeasureSpec, height, actionCount)
+                    : measureHorizontalActions(panelWidth, heightMeasureSpec, actionCount);
+        }
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    private int measureVerticalActions(int panelWidthSpec, int heightMeasureSpec, int usedHeight, int actionCount) {
+        final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        // 分隔线由布局自身绘制，只需预留出其所占空间
+        int actionHeight = (actionCount - 1) * mSeparatorThickness;
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_ACTION) {
+                continue;
+            }
+            final int remainingSpec = heightMode == MeasureSpec.UNSPECIFIED ? heightMeasureSpec
+                    : MeasureSpec.makeMeasureSpec(Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - usedHeight - actionHeight), MeasureSpec.AT_MOST);
+            child.measure(getChildMeasureSpec(panelWidthSpec, lp.leftMargin + lp.rightMargin, lp.width),
+                    getChildMeasureSpec(remainingSpec, lp.topMargin + lp.bottomMargin, lp.height == MATCH_PARENT ? WRAP_CONTENT : lp.height));
+            actionHeight += lp.topMargin + child.getMeasuredHeight() + lp.bottomMargin;
+        }
+        return actionHeight;
+    }
+
+    private int measureHorizontalActions(int panelWidth, int heightMeasureSpec, int actionCount) {
+        final int count = getChildCount();
+        int flexibleCount = 0;
+        int fixedActionWidth = (actionCount - 1) * mSeparatorThickness;
+        int rowHeight = 0;
+        // 先测量宽度固定及WRAP_CONTENT的按钮，其宽度从面板宽度中扣除
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_ACTION) {
+                continue;
+            }
+            fixedActionWidth += lp.leftMargin + lp.rightMargin;
+            if (isFlexible(lp)) {
+                flexibleCount++;
+            } else if (lp.width == WRAP_CONTENT || lp.height != MATCH_PARENT) {
+                final int widthSpec = lp.width == WRAP_CONTENT
+                        ? MeasureSpec.makeMeasureSpec(Math.max(0, panelWidth - lp.leftMargin - lp.rightMargin), MeasureSpec.AT_MOST)
+                        : MeasureSpec.makeMeasureSpec(lp.width, MeasureSpec.EXACTLY);
+                child.measure(widthSpec, getChildMeasureSpec(heightMeasureSpec, 0, lp.height == MATCH_PARENT ? WRAP_CONTENT : lp.height));
+                fixedActionWidth += child.getMeasuredWidth();
+                if (lp.height != MATCH_PARENT) {
+                    rowHeight = Math.max(rowHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+                }
+            } else {
+                fixedActionWidth += lp.width;
+            }
+        }
+        // 宽度为0或MATCH_PARENT的按钮平分剩余宽度，无需权重带来的二次测量
+        final int remaining = Math.max(0, panelWidth - fixedActionWidth);
+        final int share = flexibleCount > 0 ? remaining / flexibleCount : 0;
+        int extra = flexibleCount > 0 ? remaining % flexibleCount : 0;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_ACTION || !isFlexible(lp) || lp.height == MATCH_PARENT) {
+                continue;
+            }
+            int childWidth = share;
+            if (extra > 0) {
+                childWidth++;
+                extra--;
+            }
+            child.measure(MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY), getChildMeasureSpec(heightMeasureSpec, 0, lp.height));
+            rowHeight = Math.max(rowHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+        }
+        // 高度为MATCH_PARENT的子视图最后以整行高度测量，其中WRAP_CONTENT宽度的子视图因需先得到宽度而测量两次，是唯一的例外
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_ACTION || lp.height != MATCH_PARENT) {
+                continue;
+            }
+            int childWidth;
+            if (isFlexible(lp)) {
+                childWidth = share;
+                if (extra > 0) {
+                    childWidth++;
+                    extra--;
+                }
+            } else {
+                childWidth = lp.width == WRAP_CONTENT ? child.getMeasuredWidth() : lp.width;
+            }
+            child.measure(MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(Math.max(0, rowHeight - lp.topMargin - lp.bottomMargin), MeasureSpec.EXACTLY));
+        }
+        return rowHeight;
+    }
+
+    /**
+     * Whether the horizontal action shares the width left by the others, only a width of 0 or MATCH_PARENT does.
+     */
+    private static boolean isFlexible(LayoutParams lp) {
+        return lp.width == 0 || lp.width == MATCH_PARENT;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        final int left = getPaddingLeft();
+        final int right = r - l - getPaddingRight();
+        final int count = getChildCount();
+        int top = getPaddingTop();
+
+        if (mHasHeader) {
+            top += mHeaderPaddingTop;
+            for (int i = 0; i < count; i++) {
+                final View child = getChildAt(i);
+                final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_HEADER) {
+                    continue;
+                }
+                top += lp.topMargin;
+                final int childLeft = horizontalPosition(child, lp, left + mHeaderPaddingLeft, right - mHeaderPaddingRight);
+                child.layout(childLeft, top, childLeft + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+                top += child.getMeasuredHeight() + lp.bottomMargin;
+            }
+            top += mHeaderPaddingBottom;
+        }
+        mHeaderBottom = top;
+        if (mHasHeader && mHasActions) {
+            top += mSeparatorThickness;
+        }
+        mActionTop = top;
+
+        int rowLeft = left;
+        int rowHeight = 0;
+        boolean first = true;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_ACTION) {
+                continue;
+            }
+            if (!first) {
+                if (mActionOrientation == VERTICAL) {
+                    top += mSeparatorThickness;
+                } else {
+                    rowLeft += mSeparatorThickness;
+                }
+            }
+            first = false;
+            if (mActionOrientation == VERTICAL) {
+                top += lp.topMargin;
+                final int childLeft = horizontalPosition(child, lp, left, right);
+                child.layout(childLeft, top, childLeft + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+                top += child.getMeasuredHeight() + lp.bottomMargin;
+            } else {
+                rowLeft += lp.leftMargin;
+                child.layout(rowLeft, top + lp.topMargin, rowLeft + child.getMeasuredWidth(), top + lp.topMargin + child.getMeasuredHeight());
+                rowLeft += child.getMeasuredWidth() + lp.rightMargin;
+                rowHeight = Math.max(rowHeight, lp.topMargin + child.getMeasuredHeight() + lp.bottomMargin);
+            }
+        }
+        top += rowHeight;
+        mPanelBottom = top;
+
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_DETACHED_ACTION) {
+                continue;
+            }
+            top += lp.topMargin;
+            final int childLeft = horizontalPosition(child, lp, left, right);
+            child.layout(childLeft, top, childLeft + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+            top += child.getMeasuredHeight() + lp.bottomMargin;
+        }
+    }
+
+    private static int horizontalPosition(View child, LayoutParams lp, int left, int right) {
+        switch (lp.gravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+            case Gravity.LEFT:
+                return left + lp.leftMargin;
+            case Gravity.RIGHT:
+                return right - lp.rightMargin - child.getMeasuredWidth();
+            default:
+                return left + lp.leftMargin + (right - left - lp.leftMargin - lp.rightMargin - child.getMeasuredWidth()) / 2;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final int left = getPaddingLeft();
+        final int right = getWidth() - getPaddingRight();
+        if (mPanelBackground != null && mPanelBottom > getPaddingTop()) {
+            mPanelBackground.setBounds(left, getPaddingTop(), right, mPanelBottom);
+            mPanelBackground.draw(canvas);
+        }
+        if (mSeparatorThickness == 0 || mSeparatorPaint.getAlpha() == 0) {
+            return;
+        }
+        if (mHasHeader && mHasActions) {
+            canvas.drawRect(left, mHeaderBottom, right, mHeaderBottom + mSeparatorThickness, mSeparatorPaint);
+        }
+        // 在相邻按钮之间预留的空隙中绘制分隔线
+        View previous = null;
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (child.getVisibility() == GONE || lp.role != LayoutParams.ROLE_ACTION) {
+                continue;
+            }
+            if (previous != null) {
+                final LayoutParams previousLp = (LayoutParams) previous.getLayoutParams();
+                if (mActionOrientation == VERTICAL) {
+                    final int separatorTop = previous.getBottom() + previousLp.bottomMargin;
+                    canvas.drawRect(left, separatorTop, right, separatorTop + mSeparatorThickness, mSeparatorPaint);
+                } else {
+                    final int separatorLeft = previous.getRight() + previousLp.rightMargin;
+                    canvas.drawRect(separatorLeft, mActionTop, separatorLeft + mSeparatorThickness, mPanelBottom, mSeparatorPaint);
+                }
+            }
+            previous = child;
+        }
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        if (p instanceof MarginLayoutParams) {
+            return new LayoutParams((MarginLayoutParams) p);
+        }
+        return new LayoutParams(p);
+    }
+
+    public static class LayoutParams extends MarginLayoutParams {
+
+        /**
+         * Children stacked in the header, such as the title, message, inputs and progress bar.
+         */
+        public static final int ROLE_HEADER = 0;
+        /**
+         * Action buttons in the panel below the header.
+         */
+        public static final int ROLE_ACTION = 1;
+        /**
+         * Action buttons laid out below the panel, such as the cancel action of an action sheet.
+         */
+        public static final int ROLE_DETACHED_ACTION = 2;
+
+        public int role = ROLE_HEADER;
+        public int gravity = Gravity.CENTER_HORIZONTAL;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(int width, int height, int role) {
+            super(width, height);
+            this.role = role;
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(MarginLayoutParams source) {
+            super(source);
+        }
+    }
+}
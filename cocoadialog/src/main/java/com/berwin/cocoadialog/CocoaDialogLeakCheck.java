@@ -0,0 +1,73 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers for tests to verify that no {@link CocoaDialog} keeps an activity alive after it is destroyed.
+ *
+ * <pre>
+ * WeakReference&lt;Activity&gt; reference = new WeakReference&lt;&gt;(activity);
+ * controller.destroy();
+ * assertTrue(CocoaDialogLeakCheck.findRetainers(activity).isEmpty());
+ * activity = null;
+ * assertTrue(CocoaDialogLeakCheck.awaitCollected(reference, 5000));
+ * </pre>
+ */
+public final class CocoaDialogLeakCheck {
+
+    private CocoaDialogLeakCheck() {
+    }
+
+    /**
+     * Find the per-activity state of this library still kept for the given activity, must be called on the main thread.
+     * All of it is dropped when the activity is destroyed.
+     *
+     * @param activity The activity to check.
+     * @return The names of the holders of the activity, empty if none.
+     */
+    @NonNull
+    public static List<String> findRetainers(@NonNull Activity activity) {
+        List<String> retainers = new ArrayList<>(0);
+        if (ActivityLifecycleWatcher.isWatched(activity)) {
+            retainers.add(ActivityLifecycleWatcher.class.getSimpleName());
+        }
+        if (CocoaDialogViewPool.hasPool(activity)) {
+            retainers.add(CocoaDialogViewPool.class.getSimpleName());
+        }
+        if (CocoaDialogWindowHost.hasHost(activity)) {
+            retainers.add(CocoaDialogWindowHost.class.getSimpleName());
+        }
+        if (CocoaDialogManager.hasManager(activity)) {
+            retainers.add(CocoaDialogManager.class.getSimpleName());
+        }
+        return retainers;
+    }
+
+    /**
+     * Run the garbage collector until the referent of the given reference is collected.
+     *
+     * @param reference     A weak reference to the object expected to be collectable.
+     * @param timeoutMillis The maximum time in milliseconds to wait.
+     * @return Whether the referent has been collected.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public static boolean awaitCollected(@NonNull Reference<?> reference, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (reference.get() != null) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            // gc仅是建议，多次触发并等待引用被清除
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,353 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Queues the {@link CocoaDialog}s of an activity and shows them one at a time, by priority and then in the
+ * order they are enqueued. Requests with the same key enqueued within the coalesce window of each other are
+ * shown only once, and requests waiting longer than their timeout are dropped.
+ *
+ * <p>Requests may be enqueued from any thread, the dialogs are always built and shown on the main thread.</p>
+ */
+public final class CocoaDialogManager {
+
+    interface Clock {
+        long uptimeMillis();
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    private static final Map<Activity, CocoaDialogManager> sManagers = new WeakHashMap<>();
+    private static final ActivityLifecycleWatcher.OnActivityDestroyedListener sEvictListener = new ActivityLifecycleWatcher.OnActivityDestroyedListener() {
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            CocoaDialogManager manager = sManagers.remove(activity);
+            if (manager != null) {
+                manager.cancelAll();
+            }
+        }
+    };
+
+    private final Activity mActivity;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<Request> mPendingRequests = new ArrayList<>();
+    private Clock mClock = SYSTEM_CLOCK;
+    private Request mShowingRequest;
+    private long mSequence;
+
+    private CocoaDialogManager(Activity activity) {
+        this.mActivity = activity;
+    }
+
+    /**
+     * Get the dialog manager of the given activity, must be called on the main thread.
+     *
+     * @param activity The activity that shows the dialogs.
+     * @return {@link CocoaDialogManager} instance.
+     */
+    public static CocoaDialogManager get(@NonNull Activity activity) {
+        CocoaDialogManager manager = sManagers.get(activity);
+        if (manager == null) {
+            manager = new CocoaDialogManager(activity);
+            sManagers.put(activity, manager);
+            ActivityLifecycleWatcher.watch(activity, sEvictListener);
+        }
+        return manager;
+    }
+
+    /**
+     * Get whether a manager is kept for the given activity.
+     */
+    static boolean hasManager(Activity activity) {
+        return sManagers.containsKey(activity);
+    }
+
+    void setClock(Clock clock) {
+        this.mClock = clock;
+    }
+
+    /**
+     * Enqueue a request, the dialog is shown when no other dialog of this manager is showing and no pending request
+     * has a higher priority.
+     *
+     * @param request The request to enqueue.
+     */
+    public void enqueue(@NonNull final Request request) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    enqueue(request);
+                }
+            });
+            return;
+        }
+        if (request.mManager != null || request.mCancelled || ActivityLifecycleWatcher.isGone(mActivity)) {
+            return;
+        }
+        long now = mClock.uptimeMillis();
+        long sequence = -1;
+        if (request.mKey != null) {
+            if (mShowingRequest != null && request.mKey.equals(mShowingRequest.mKey)
+                    && now - mShowingRequest.mEnqueueTime < request.mCoalesceWindowMillis) {
+                // 相同key的对话框正在显示，合并到该请求中
+                return;
+            }
+            for (int i = mPendingRequests.size() - 1; i >= 0; i--) {
+                Request pending = mPendingRequests.get(i);
+                if (request.mKey.equals(pending.mKey)) {
+                    if (now - pending.mEnqueueTime < request.mCoalesceWindowMillis) {
+                        return;
+                    }
+                    // 超出合并时间窗口，以新的请求替换排队中的旧请求，并保留旧请求的排队顺序
+                    mPendingRequests.remove(i);
+                    pending.mManager = null;
+                    pending.mCancelled = true;
+                    sequence = sequence < 0 ? pending.mSequence : Math.min(sequence, pending.mSequence);
+                }
+            }
+        }
+        request.mManager = this;
+        request.mEnqueueTime = now;
+        request.mSequence = sequence >= 0 ? sequence : mSequence++;
+        mPendingRequests.add(request);
+        if (mShowingRequest == null) {
+            showNext();
+        }
+    }
+
+    /**
+     * Cancel all the pending requests and dismiss the showing dialog of this manager.
+     */
+    public void cancelAll() {
+        for (Request request : mPendingRequests) {
+            request.mManager = null;
+            request.mCancelled = true;
+        }
+        mPendingRequests.clear();
+        if (mShowingRequest != null) {
+            mShowingRequest.cancel();
+        }
+    }
+
+    /**
+     * Get the count of the requests waiting to be shown.
+     *
+     * @return The count of the pending requests.
+     */
+    public int getPendingCount() {
+        return mPendingRequests.size();
+    }
+
+    /**
+     * Get the dialog currently shown by this manager.
+     *
+     * @return The showing dialog, or null if none.
+     */
+    @Nullable
+    public CocoaDialog getShowingDialog() {
+        return mShowingRequest != null ? mShowingRequest.mDialog : null;
+    }
+
+    private void showNext() {
+        while (true) {
+            if (ActivityLifecycleWatcher.isGone(mActivity)) {
+                cancelAll();
+                return;
+            }
+            final Request next = pollNext();
+            if (next == null) {
+                return;
+            }
+            mShowingRequest = next;
+            next.mDialog = next.mBuilder.build();
+            next.mDismissCallback = new Runnable() {
+                @Override
+                public void run() {
+                    finish(next);
+                }
+            };
+            next.mDialog.addDismissCallback(next.mDismissCallback);
+            next.mDialog.show();
+            if (next.mDialog.isShowing() || mShowingRequest != next) {
+                return;
+            }
+            // show()未显示对话框（如构建对话框的Activity已销毁），丢弃该请求并继续显示下一个
+            next.mDialog.removeDismissCallback(next.mDismissCallback);
+            next.mDismissCallback = null;
+            next.mManager = null;
+            next.mCancelled = true;
+            mShowingRequest = null;
+        }
+    }
+
+    /**
+     * Remove the next request to show from the queue, dropping the stale ones.
+     */
+    private Request pollNext() {
+        long now = mClock.uptimeMillis();
+        Request next = null;
+        for (int i = mPendingRequests.size() - 1; i >= 0; i--) {
+            Request request = mPendingRequests.get(i);
+            if (request.mTimeoutMillis > 0 && now - request.mEnqueueTime > request.mTimeoutMillis) {
+                // 等待过久的请求已过期，直接丢弃
+                mPendingRequests.remove(i);
+                request.mManager = null;
+                request.mCancelled = true;
+                continue;
+            }
+            if (next == null || request.mPriority > next.mPriority
+                    || (request.mPriority == next.mPriority && request.mSequence < next.mSequence)) {
+                next = request;
+            }
+        }
+        if (next != null) {
+            mPendingRequests.remove(next);
+        }
+        return next;
+    }
+
+    /**
+     * Detach a shown request from its dialog, so that showing and dismissing the dialog again does not advance the queue,
+     * and show the next request if it was the showing one.
+     */
+    private void finish(Request request) {
+        if (request.mDismissCallback != null) {
+            request.mDialog.removeDismissCallback(request.mDismissCallback);
+            request.mDismissCallback = null;
+        }
+        request.mManager = null;
+        if (mShowingRequest == request) {
+            mShowingRequest = null;
+            showNext();
+        }
+    }
+
+    private void remove(Request request) {
+        if (mPendingRequests.remove(request)) {
+            request.mManager = null;
+        } else if (mShowingRequest == request && request.mDialog != null) {
+            request.mDialog.dismiss();
+        }
+    }
+
+    /**
+     * A request to show a {@link CocoaDialog} through a {@link CocoaDialogManager}.
+     */
+    public static final class Request {
+
+        private final CocoaDialog.Builder mBuilder;
+        private String mKey;
+        private int mPriority;
+        private long mCoalesceWindowMillis = Long.MAX_VALUE;
+        private long mTimeoutMillis;
+
+        private CocoaDialogManager mManager;
+        private CocoaDialog mDialog;
+        private Runnable mDismissCallback;
+        private boolean mCancelled;
+        private long mEnqueueTime;
+        private long mSequence;
+
+        /**
+         * Create a request, the dialog is built only when it is about to be shown.
+         *
+         * @param builder The builder of the dialog.
+         */
+        public Request(@NonNull CocoaDialog.Builder builder) {
+            this.mBuilder = builder;
+        }
+
+        /**
+         * Set the key used to coalesce the requests of the same dialog, such as an error type.
+         *
+         * @param key The key of the request, null to never coalesce.
+         * @return {@link Request} instance.
+         */
+        public Request setKey(@Nullable String key) {
+            this.mKey = key;
+            return this;
+        }
+
+        /**
+         * Set the priority of the request, requests with higher priority are shown first. Default is 0.
+         *
+         * @param priority The priority of the request.
+         * @return {@link Request} instance.
+         */
+        public Request setPriority(int priority) {
+            this.mPriority = priority;
+            return this;
+        }
+
+        /**
+         * Set the time window in which a request with the same key is dropped, if a request with the same key
+         * is still pending after the window, it is replaced by this one, which takes its place in the queue.
+         * Default is unlimited.
+         *
+         * @param windowMillis The coalesce window in milliseconds.
+         * @return {@link Request} instance.
+         */
+        public Request setCoalesceWindow(long windowMillis) {
+            this.mCoalesceWindowMillis = windowMillis;
+            return this;
+        }
+
+        /**
+         * Set how long the request may wait in the queue before it is dropped as stale.
+         *
+         * @param timeoutMillis The timeout in milliseconds, 0 to wait forever. Default is 0.
+         * @return {@link Request} instance.
+         */
+        public Request setTimeout(long timeoutMillis) {
+            this.mTimeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * Remove the request from the queue, or dismiss its dialog if it is showing. Must be called on the main thread.
+         */
+        public void cancel() {
+            mCancelled = true;
+            if (mManager != null) {
+                CocoaDialogManager manager = mManager;
+                mManager = null;
+                manager.remove(this);
+            }
+        }
+
+        /**
+         * Get whether the request is cancelled, replaced or dropped as stale.
+         *
+         * @return true if the request will not be shown any more.
+         */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Get the dialog built for this request.
+         *
+         * @return The dialog, or null if the request has not been shown yet.
+         */
+        @Nullable
+        public CocoaDialog getDialog() {
+            return mDialog;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.berwin.cocoadialog;
+
+import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Receives the timings of the phases a {@link CocoaDialog} goes through from being built to its first drawn frame,
+ * registered by {@link CocoaDialog#setDefaultMetrics(CocoaDialogMetrics)} or {@link CocoaDialog.Builder#setMetrics(CocoaDialogMetrics)}.
+ * Nothing is measured when no listener is registered. All callbacks are invoked on the main thread, except
+ * {@link #PHASE_BUILD} which is invoked on the thread building the dialog.
+ */
+public interface CocoaDialogMetrics {
+
+    /**
+     * From {@link CocoaDialog.Builder#build()} or {@link CocoaDialogSpec#build(android.content.Context)} to the dialog being constructed.
+     */
+    int PHASE_BUILD = 0;
+    /**
+     * {@link CocoaDialog#onCreate(android.os.Bundle)}, including the inflation or pooling of the content view.
+     */
+    int PHASE_CREATE = 1;
+    /**
+     * Creating and binding the action buttons, nested in {@link #PHASE_CREATE} or {@link #PHASE_START}, so it is reported first.
+     */
+    int PHASE_RESOLVE_ACTIONS = 2;
+    /**
+     * {@link CocoaDialog#onStart()}, including the update of the window attributes.
+     */
+    int PHASE_START = 3;
+    /**
+     * From the end of {@link #PHASE_START} to the first frame of the dialog being drawn, mainly measure and layout.
+     */
+    int PHASE_FIRST_DRAW = 4;
+
+    @IntDef({PHASE_BUILD, PHASE_CREATE, PHASE_RESOLVE_ACTIONS, PHASE_START, PHASE_FIRST_DRAW})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface Phase {
+    }
+
+    /**
+     * Called when a phase ends.
+     *
+     * @param dialog        The measured dialog.
+     * @param phase         The phase that ended.
+     * @param durationNanos The duration of the phase in nanoseconds.
+     */
+    void onPhase(@NonNull CocoaDialog dialog, @Phase int phase, long durationNanos);
+
+    /**
+     * Called when the first frame of the dialog is drawn after each {@link CocoaDialog#show()}.
+     *
+     * @param dialog           The measured dialog.
+     * @param totalNanos       The duration from {@link CocoaDialog#show()} to the first frame in nanoseconds.
+     * @param createdViewCount The count of the views created for this show, the views taken from {@link CocoaDialogViewPool} are not counted.
+     */
+    void onShown(@NonNull CocoaDialog dialog, long totalNanos, int createdViewCount);
+}
@@ -0,0 +1,111 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.ContextThemeWrapper;
+
+import com.berwin.cocoadialog.utils.DrawableCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Performs the work of the first {@link CocoaDialog} of an activity ahead of time, one small step per idle
+ * pass of the main looper, so that it never delays a frame: resolving the dialog theme, inflating the content
+ * views and creating the action buttons into {@link CocoaDialogViewPool}, and loading the background drawables
+ * into {@link DrawableCache}.
+ */
+final class CocoaDialogPrewarmer implements MessageQueue.IdleHandler {
+
+    private static final int PREWARM_BUTTON_COUNT = 4;
+    private static final int[] BACKGROUND_RESOURCES = {
+            R.drawable.cocoa_dialog_corner_radius,
+            R.drawable.cocoa_dialog_top_radius,
+            R.drawable.cocoa_dialog_bottom_radius,
+            R.drawable.cocoa_dialog_bottom_left_radius,
+            R.drawable.cocoa_dialog_bottom_right_radius,
+            android.R.color.white
+    };
+
+    private final Context mHostContext;
+    private final List<CocoaDialogStyle> mStyles = new ArrayList<>(2);
+    private Context mThemedContext;
+    private int mStep;
+
+    private CocoaDialogPrewarmer(Context hostContext, CocoaDialogStyle... styles) {
+        this.mHostContext = hostContext;
+        for (CocoaDialogStyle style : styles) {
+            // 自定义样式没有可预先创建的内容
+            if (style != CocoaDialogStyle.custom && !mStyles.contains(style)) {
+                mStyles.add(style);
+            }
+        }
+    }
+
+    /**
+     * Start prewarming when the main looper becomes idle, may be called from any thread.
+     *
+     * @param hostContext The context the dialogs will be built with, usually an activity.
+     * @param styles      The styles of the dialogs to prewarm.
+     * @return {@link CocoaDialogPrewarmer} instance.
+     */
+    static CocoaDialogPrewarmer start(Context hostContext, CocoaDialogStyle... styles) {
+        final CocoaDialogPrewarmer prewarmer = new CocoaDialogPrewarmer(hostContext, styles);
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Looper.myQueue().addIdleHandler(prewarmer);
+        } else {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    Looper.myQueue().addIdleHandler(prewarmer);
+                }
+            });
+        }
+        return prewarmer;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        Activity activity = ActivityLifecycleWatcher.findActivity(mHostContext);
+        if (activity != null && ActivityLifecycleWatcher.isGone(activity)) {
+            return false;
+        }
+        return runStep(mStep++);
+    }
+
+    /**
+     * Run one step of the work.
+     *
+     * @return Whether there are steps left.
+     */
+    private boolean runStep(int step) {
+        if (step == 0) {
+            // 与Dialog内部一致的主题上下文，解析按钮样式以加载主题资源
+            mThemedContext = new ContextThemeWrapper(mHostContext, android.R.style.Theme_Dialog);
+            TypedArray a = mThemedContext.obtainStyledAttributes(null, new int[]{android.R.attr.textColor}, android.R.attr.borderlessButtonStyle, 0);
+            a.recycle();
+            return true;
+        }
+        step--;
+        if (step < mStyles.size()) {
+            CocoaDialogViewPool.prewarm(mHostContext, mThemedContext, mStyles.get(step));
+            return true;
+        }
+        step -= mStyles.size();
+        if (step < PREWARM_BUTTON_COUNT) {
+            CocoaDialogViewPool.prewarmButton(mHostContext, mThemedContext);
+            return true;
+        }
+        step -= PREWARM_BUTTON_COUNT;
+        if (step < BACKGROUND_RESOURCES.length) {
+            // 解析结果缓存在DrawableCache中，之后显示时直接复用
+            DrawableCache.get(mThemedContext).getPressableDrawable(BACKGROUND_RESOURCES[step]);
+            return step < BACKGROUND_RESOURCES.length - 1;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,221 @@
+package com.berwin.cocoadialog;
+
+import android.content.Context;
+import android.content.DialogInterface;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.view.Gravity;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * An immutable description of a {@link CocoaDialog}, built by {@link CocoaDialog.Builder#buildSpec()}.
+ *
+ * <p>The order of the actions and the layout decisions, such as the orientation of the action buttons,
+ * the visibility of the header and the background of every button, are resolved once when the spec is built.
+ * A spec never changes afterwards, so it can be cached, shared between threads and shown many times by
+ * {@link #build(Context)}.</p>
+ */
+public final class CocoaDialogSpec {
+
+    final CocoaDialogStyle style;
+    final CharSequence title;
+    final int titleRes;
+    final CharSequence message;
+    final int messageRes;
+    final int animStyleRes;
+    final Boolean cancelable;
+    final Boolean canceledOnTouchOutside;
+    final DialogInterface.OnCancelListener onCancelListener;
+    final DialogInterface.OnDismissListener onDismissListener;
+    final int customWidth;
+    final int customHeight;
+    final int customGravity;
+    final View customContentView;
+    final boolean virtualized;
+    final Executor actionSearchExecutor;
+    final Executor textPrecomputeExecutor;
+    final CocoaDialogMetrics metrics;
+    final EditTextValidator validator;
+    final Executor validationExecutor;
+    final long validationDebounceMillis;
+    final List<CocoaDialogAction> guardedActions;
+    final int streamingMaxLines;
+    final boolean streamingAutoScroll;
+    // 仅居中显示的样式可以共享窗口，actionSheet及非居中的custom样式始终使用独立窗口
+    final boolean sharedWindow;
+    final List<EditTextConfigurationHandler> editTextHandlers;
+    final ProgressBarBuildHandler progressBarHandler;
+
+    final boolean headerHidden;
+    @CocoaDialogLayout.Orientation
+    final int actionOrientation;
+    // 按显示顺序排列的面板内按钮及其背景，actionSheet的取消按钮单独放在面板下方
+    final List<CocoaDialogAction> actions;
+    private final int[] mActionBackgrounds;
+    final CocoaDialogAction detachedAction;
+
+    CocoaDialogSpec(CocoaDialog.Builder builder) {
+        this.style = builder.preferredStyle;
+        this.title = builder.title != null ? TextUtils.stringOrSpannedString(builder.title) : null;
+        this.titleRes = builder.titleRes;
+        this.message = builder.message != null ? TextUtils.stringOrSpannedString(builder.message) : null;
+        this.messageRes = builder.messageRes;
+        this.animStyleRes = builder.animStyleRes;
+        this.cancelable = builder.cancelable;
+        this.canceledOnTouchOutside = builder.canceledOnTouchOutside;
+        this.onCancelListener = builder.onCancelListener;
+        this.onDismissListener = builder.onDismissListener;
+        this.customWidth = builder.customWidth;
+        this.customHeight = builder.customHeight;
+        this.customGravity = builder.customGravity;
+        this.customContentView = builder.customContentView;
+        this.actionSearchExecutor = builder.actionSearchExecutor;
+        // 搜索结果需要由列表过滤显示
+        this.virtualized = builder.virtualized || actionSearchExecutor != null;
+        this.textPrecomputeExecutor = builder.textPrecomputeExecutor;
+        this.metrics = builder.metrics;
+        this.streamingMaxLines = builder.streamingMaxLines;
+        this.streamingAutoScroll = builder.streamingAutoScroll;
+        this.sharedWindow = builder.sharedWindow && (style == CocoaDialogStyle.alert
+                || (style == CocoaDialogStyle.custom && customGravity == Gravity.CENTER));
+        this.validator = builder.validator;
+        this.validationExecutor = builder.validationExecutor;
+        this.validationDebounceMillis = builder.validationDebounceMillis;
+        this.guardedActions = builder.guardedActions == null
+                ? Collections.<CocoaDialogAction>emptyList()
+                : Collections.unmodifiableList(Arrays.asList(builder.guardedActions.clone()));
+        this.editTextHandlers = builder.editTextHandlers == null || builder.editTextHandlers.isEmpty()
+                ? Collections.<EditTextConfigurationHandler>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(builder.editTextHandlers));
+        this.progressBarHandler = builder.progressBarHandler;
+
+        List<CocoaDialogAction> actions = builder.actionList == null ? new ArrayList<CocoaDialogAction>() : new ArrayList<>(builder.actionList);
+        CocoaDialogAction detachedAction = null;
+        boolean headerHidden = !hasText() && actionSearchExecutor == null;
+        int orientation = CocoaDialogLayout.VERTICAL;
+        if (style == CocoaDialogStyle.alert) {
+            headerHidden = headerHidden && editTextHandlers.isEmpty();
+            if (!headerHidden && actions.size() <= 2) {
+                orientation = CocoaDialogLayout.HORIZONTAL;
+            } else if (actions.size() > 1 && actions.get(0).getStyle() == CocoaDialogActionStyle.cancel) {
+                // 没有title、message且无输入框或者拥有3个以上Action时，每个Action Button占据整行空间，取消按钮放到最下方
+                actions.add(actions.remove(0));
+            }
+        } else if (style == CocoaDialogStyle.actionSheet && !actions.isEmpty() && actions.get(0).getStyle() == CocoaDialogActionStyle.cancel) {
+            detachedAction = actions.remove(0);
+        }
+        this.headerHidden = headerHidden;
+        this.actionOrientation = orientation;
+        this.detachedAction = detachedAction;
+        this.actions = Collections.unmodifiableList(actions);
+        this.mActionBackgrounds = new int[actions.size()];
+        for (int i = 0, last = actions.size() - 1; i <= last; i++) {
+            if (orientation == CocoaDialogLayout.HORIZONTAL) {
+                mActionBackgrounds[i] = i == 0 ? (i == last ? R.drawable.cocoa_dialog_bottom_radius : R.drawable.cocoa_dialog_bottom_left_radius) : R.drawable.cocoa_dialog_bottom_right_radius;
+            } else if (i == 0 && headerHidden) {
+                mActionBackgrounds[i] = i == last ? R.drawable.cocoa_dialog_corner_radius : R.drawable.cocoa_dialog_top_radius;
+            } else {
+                mActionBackgrounds[i] = i == last ? R.drawable.cocoa_dialog_bottom_radius : android.R.color.white;
+            }
+        }
+    }
+
+    /**
+     * Build a new {@link CocoaDialog} of this spec.
+     *
+     * @param context The context to show the dialog in, usually an activity.
+     * @return {@link CocoaDialog} instance.
+     */
+    public CocoaDialog build(@NonNull Context context) {
+        CocoaDialogMetrics metrics = this.metrics != null ? this.metrics : CocoaDialog.getDefaultMetrics();
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        return new CocoaDialog(context, this, metrics, startNanos);
+    }
+
+    /**
+     * Get the style of the dialog.
+     *
+     * @return The {@link CocoaDialogStyle}.
+     */
+    @NonNull
+    public CocoaDialogStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * Get the title of the dialog.
+     *
+     * @return The title, or null if not set or set by a string resource id.
+     */
+    @Nullable
+    public CharSequence getTitle() {
+        return title;
+    }
+
+    /**
+     * Get the message of the dialog.
+     *
+     * @return The message, or null if not set or set by a string resource id.
+     */
+    @Nullable
+    public CharSequence getMessage() {
+        return message;
+    }
+
+    /**
+     * Get the actions of the dialog in the order they are shown, the detached cancel action of an action sheet comes last.
+     *
+     * @return An unmodifiable list of the actions.
+     */
+    @NonNull
+    public List<CocoaDialogAction> getActions() {
+        if (detachedAction == null) {
+            return actions;
+        }
+        List<CocoaDialogAction> list = new ArrayList<>(actions);
+        list.add(detachedAction);
+        return Collections.unmodifiableList(list);
+    }
+
+    boolean hasTitle() {
+        return title != null || titleRes != 0;
+    }
+
+    boolean hasMessage() {
+        return message != null || messageRes != 0 || streamingMaxLines > 0;
+    }
+
+    boolean hasText() {
+        return hasTitle() || hasMessage();
+    }
+
+    /**
+     * Resolve the title, the string resource is loaded on the calling thread.
+     */
+    CharSequence resolveTitle(Context context) {
+        return title == null && titleRes != 0 ? context.getString(titleRes) : title;
+    }
+
+    /**
+     * Resolve the message, the string resource is loaded on the calling thread.
+     */
+    CharSequence resolveMessage(Context context) {
+        return message == null && messageRes != 0 ? context.getString(messageRes) : message;
+    }
+
+    /**
+     * Get the background of the action button at the given position of {@link #actions}.
+     */
+    @DrawableRes
+    int getActionBackground(int position) {
+        return mActionBackgrounds[position];
+    }
+}
@@ -0,0 +1,273 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.annotation.LayoutRes;
+import android.util.TypedValue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A per-activity pool of inflated {@link CocoaDialog} content hierarchies and styled action buttons,
+ * so that showing a dialog of a style that has been shown before in the same activity does not inflate
+ * its layout or create its buttons again. Pools are evicted when their activity is destroyed.
+ * Must only be used on the main thread.
+ */
+public final class CocoaDialogViewPool {
+
+    private static final int DEFAULT_CAPACITY = 2;
+    private static final int DEFAULT_BUTTON_CAPACITY = 8;
+
+    private static int sCapacity = DEFAULT_CAPACITY;
+    private static int sButtonCapacity = DEFAULT_BUTTON_CAPACITY;
+    private static final Map<Activity, CocoaDialogViewPool> sPools = new WeakHashMap<>();
+    // 累计创建的视图数量，供CocoaDialogMetrics统计
+    private static int sCreatedViewCount;
+    private static final ActivityLifecycleWatcher.OnActivityDestroyedListener sEvictListener = new ActivityLifecycleWatcher.OnActivityDestroyedListener() {
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            sPools.remove(activity);
+        }
+    };
+
+    private final Map<CocoaDialogStyle, ArrayDeque<View>> mViews = new EnumMap<>(CocoaDialogStyle.class);
+    private final ArrayDeque<Button> mButtons = new ArrayDeque<>();
+
+    private CocoaDialogViewPool() {
+    }
+
+    /**
+     * Set the maximum count of the idle content views kept for each {@link CocoaDialogStyle} in an activity,
+     * zero to disable pooling. Default is 2.
+     *
+     * @param capacity The capacity of each pool.
+     */
+    public static void setCapacity(int capacity) {
+        sCapacity = capacity < 0 ? 0 : capacity;
+        for (CocoaDialogViewPool pool : sPools.values()) {
+            pool.trim();
+        }
+    }
+
+    /**
+     * Set the maximum count of the idle action buttons kept in an activity, zero to disable pooling. Default is 8.
+     *
+     * @param capacity The capacity of each pool.
+     */
+    public static void setButtonCapacity(int capacity) {
+        sButtonCapacity = capacity < 0 ? 0 : capacity;
+        for (CocoaDialogViewPool pool : sPools.values()) {
+            pool.trim();
+        }
+    }
+
+    /**
+     * Drop all the idle content views and action buttons pooled for the activity of the given context.
+     *
+     * @param context The context of the activity.
+     */
+    public static void clear(Context context) {
+        Activity activity = ActivityLifecycleWatcher.findActivity(context);
+        if (activity != null) {
+            sPools.remove(activity);
+        }
+    }
+
+    /**
+     * Borrow a content view of the given style, inflate a new one if the pool is empty.
+     *
+     * @param hostContext The context the dialog is built with, used to find the host activity.
+     * @param context     The themed context of the dialog, used for inflation.
+     * @param style       The style of the dialog.
+     * @return A content view without parent.
+     */
+    static View acquire(Context hostContext, Context context, CocoaDialogStyle style) {
+        CocoaDialogViewPool pool = obtain(hostContext, false);
+        if (pool != null) {
+            ArrayDeque<View> views = pool.mViews.get(style);
+            if (views != null && !views.isEmpty()) {
+                return views.poll();
+            }
+        }
+        return inflate(context, style);
+    }
+
+    /**
+     * Give back a content view that has been reset to its inflated state.
+     *
+     * @param hostContext The context the dialog is built with, used to find the host activity.
+     * @param style       The style of the dialog.
+     * @param view        The content view without parent.
+     */
+    static void release(Context hostContext, CocoaDialogStyle style, View view) {
+        if (sCapacity == 0) {
+            return;
+        }
+        CocoaDialogViewPool pool = obtain(hostContext, true);
+        if (pool == null) {
+            return;
+        }
+        ArrayDeque<View> views = pool.mViews.get(style);
+        if (views == null) {
+            views = new ArrayDeque<>(sCapacity);
+            pool.mViews.put(style, views);
+        }
+        if (views.size() < sCapacity) {
+            views.offer(view);
+        }
+    }
+
+    /**
+     * Borrow an action button, create a new one if the pool is empty.
+     *
+     * @param hostContext The context the dialog is built with, used to find the host activity.
+     * @param context     The themed context of the dialog, used to create the button.
+     * @return An action button without parent, text, listener or background.
+     */
+    static Button acquireButton(Context hostContext, Context context) {
+        CocoaDialogViewPool pool = obtain(hostContext, false);
+        if (pool != null && !pool.mButtons.isEmpty()) {
+            return pool.mButtons.poll();
+        }
+        return createButton(context);
+    }
+
+    /**
+     * Give back an action button that has been detached from its parent.
+     *
+     * @param hostContext The context the dialog is built with, used to find the host activity.
+     * @param button      The action button without parent.
+     */
+    static void releaseButton(Context hostContext, Button button) {
+        // 解除与对话框的引用，避免复用池持有已关闭的对话框
+        button.setOnClickListener(null);
+        button.setTag(R.id.cocoa_dialog_action_index, null);
+        button.setTag(R.id.cocoa_dialog_action_background, null);
+        button.setText(null);
+        button.setEnabled(true);
+        if (sButtonCapacity == 0) {
+            return;
+        }
+        CocoaDialogViewPool pool = obtain(hostContext, true);
+        if (pool != null && pool.mButtons.size() < sButtonCapacity) {
+            pool.mButtons.offer(button);
+        }
+    }
+
+    /**
+     * Inflate a content view of the given style into the pool if it is not full.
+     *
+     * @param hostContext The context the dialogs will be built with, used to find the host activity.
+     * @param context     The themed context of the dialog, used for inflation.
+     * @param style       The style of the dialog.
+     */
+    static void prewarm(Context hostContext, Context context, CocoaDialogStyle style) {
+        CocoaDialogViewPool pool = obtain(hostContext, sCapacity > 0);
+        if (pool == null) {
+            return;
+        }
+        ArrayDeque<View> views = pool.mViews.get(style);
+        if (views == null || views.size() < sCapacity) {
+            release(hostContext, style, inflate(context, style));
+        }
+    }
+
+    /**
+     * Create an action button into the pool if it is not full.
+     *
+     * @param hostContext The context the dialogs will be built with, used to find the host activity.
+     * @param context     The themed context of the dialog, used to create the button.
+     */
+    static void prewarmButton(Context hostContext, Context context) {
+        CocoaDialogViewPool pool = obtain(hostContext, sButtonCapacity > 0);
+        if (pool != null && pool.mButtons.size() < sButtonCapacity) {
+            pool.mButtons.offer(createButton(context));
+        }
+    }
+
+    @LayoutRes
+    static int layoutOf(CocoaDialogStyle style) {
+        return style == CocoaDialogStyle.actionSheet ? R.layout.cocoa_dialog_action_sheet : R.layout.cocoa_dialog_alert;
+    }
+
+    private static CocoaDialogViewPool obtain(Context hostContext, boolean create) {
+        Activity activity = ActivityLifecycleWatcher.findActivity(hostContext);
+        if (activity == null || ActivityLifecycleWatcher.isGone(activity)) {
+            return null;
+        }
+        CocoaDialogViewPool pool = sPools.get(activity);
+        if (pool == null && create) {
+            pool = new CocoaDialogViewPool();
+            sPools.put(activity, pool);
+            ActivityLifecycleWatcher.watch(activity, sEvictListener);
+        }
+        return pool;
+    }
+
+    /**
+     * Get whether idle views are pooled for the given activity.
+     */
+    static boolean hasPool(Activity activity) {
+        return sPools.containsKey(activity);
+    }
+
+    /**
+     * Get the count of the views created so far, including the views created by {@link #countCreatedViews(int)}.
+     */
+    static int getCreatedViewCount() {
+        return sCreatedViewCount;
+    }
+
+    static void countCreatedViews(int count) {
+        sCreatedViewCount += count;
+    }
+
+    private static View inflate(Context context, CocoaDialogStyle style) {
+        View view = newContentView(context, style);
+        countCreatedViews(view instanceof ViewGroup ? ((ViewGroup) view).getChildCount() + 1 : 1);
+        return view;
+    }
+
+    private static Button createButton(Context context) {
+        countCreatedViews(1);
+        return newButton(context);
+    }
+
+    /**
+     * Inflate a content view of the given style outside the pool, may be called from a background thread.
+     * The view is not counted by {@link #countCreatedViews(int)}.
+     */
+    static View newContentView(Context context, CocoaDialogStyle style) {
+        return LayoutInflater.from(context).inflate(layoutOf(style), null, false);
+    }
+
+    /**
+     * Create an action button outside the pool, may be called from a background thread.
+     * The button is not counted by {@link #countCreatedViews(int)}.
+     */
+    static Button newButton(Context context) {
+        Button button = new Button(context, null, android.R.attr.borderlessButtonStyle);
+        button.setFocusable(false);
+        button.setAllCaps(false);
+        button.setTextSize(TypedValue.COMPLEX_UNIT_SP, 15);
+        return button;
+    }
+
+    private void trim() {
+        for (ArrayDeque<View> views : mViews.values()) {
+            while (views.size() > sCapacity) {
+                views.poll();
+            }
+        }
+        while (mButtons.size() > sButtonCapacity) {
+            mButtons.poll();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.berwin.cocoadialog;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.app.Activity;
+import android.app.Dialog;
+import android.content.res.TypedArray;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The dialog window shared by the {@link CocoaDialog}s of an activity built with
+ * {@link CocoaDialog.Builder#setSharedWindow(boolean)}. The window is added once and kept attached until the activity
+ * is destroyed, the content views of the dialogs are swapped into it with a cross-fade, and it is only hidden while
+ * no dialog is showing. Dialogs shown on top of each other are stacked, only the top one is visible.
+ * Must only be used on the main thread.
+ */
+final class CocoaDialogWindowHost extends Dialog {
+
+    private static final Map<Activity, CocoaDialogWindowHost> sHosts = new WeakHashMap<>();
+    private static final ActivityLifecycleWatcher.OnActivityDestroyedListener sReleaseListener = new ActivityLifecycleWatcher.OnActivityDestroyedListener() {
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            CocoaDialogWindowHost host = sHosts.remove(activity);
+            if (host != null) {
+                host.release();
+            }
+        }
+    };
+
+    private final FrameLayout mContainer;
+    private final List<CocoaDialog> mDialogs = new ArrayList<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final int mFadeDuration;
+    private final boolean mDefaultCanceledOnTouchOutside;
+    private boolean mHidden;
+
+    // 最后一个对话框关闭后延迟到下一次消息循环再隐藏窗口，以便紧接着显示的对话框直接交叉淡入
+    private final Runnable mHideIfEmpty = new Runnable() {
+        @Override
+        public void run() {
+            if (mDialogs.isEmpty() && isShowing() && !mHidden) {
+                hide();
+            }
+        }
+    };
+
+    private CocoaDialogWindowHost(Activity activity) {
+        super(activity, android.R.style.Theme_Dialog);
+        this.mContainer = new FrameLayout(getContext());
+        this.mFadeDuration = getContext().getResources().getInteger(android.R.integer.config_shortAnimTime);
+        TypedArray a = getContext().obtainStyledAttributes(new int[]{android.R.attr.windowCloseOnTouchOutside});
+        this.mDefaultCanceledOnTouchOutside = a.getBoolean(0, false);
+        a.recycle();
+    }
+
+    /**
+     * Get the shared window of the given activity, it is released when the activity is destroyed.
+     *
+     * @param activity The activity that shows the dialogs.
+     * @return {@link CocoaDialogWindowHost} instance.
+     */
+    static CocoaDialogWindowHost get(Activity activity) {
+        CocoaDialogWindowHost host = sHosts.get(activity);
+        if (host == null) {
+            host = new CocoaDialogWindowHost(activity);
+            sHosts.put(activity, host);
+            ActivityLifecycleWatcher.watch(activity, sReleaseListener);
+        }
+        return host;
+    }
+
+    /**
+     * Get whether a shared window is kept for the given activity.
+     */
+    static boolean hasHost(Activity activity) {
+        return sHosts.containsKey(activity);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        Window window = getWindow();
+        assert window != null;
+        window.requestFeature(Window.FEATURE_NO_TITLE);
+        window.setBackgroundDrawableResource(android.R.color.transparent);
+        setContentView(mContainer);
+    }
+
+    /**
+     * Show the content of the given dialog on top of the others, adding the window only the first time.
+     *
+     * @param dialog The dialog to show.
+     */
+    void attach(CocoaDialog dialog) {
+        mHandler.removeCallbacks(mHideIfEmpty);
+        boolean visible = isShowing() && !mHidden;
+        CocoaDialog previous = mDialogs.isEmpty() ? null : mDialogs.get(mDialogs.size() - 1);
+        mDialogs.add(dialog);
+        View content = dialog.onAttachToWindowHost();
+        if (content.getParent() != mContainer) {
+            if (content.getParent() instanceof ViewGroup) {
+                ((ViewGroup) content.getParent()).removeView(content);
+            }
+            mContainer.addView(content, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+        if (previous != null) {
+            fadeOut(previous, false);
+        }
+        bringToTop(dialog, visible);
+        if (!visible) {
+            mHidden = false;
+            show();
+        }
+    }
+
+    /**
+     * Remove the content of the given dialog, the dialog below it becomes visible again. The window is hidden
+     * if no dialog is left.
+     *
+     * @param dialog The dialog dismissed.
+     */
+    void detach(CocoaDialog dialog) {
+        int index = mDialogs.indexOf(dialog);
+        if (index < 0) {
+            return;
+        }
+        mDialogs.remove(index);
+        if (index < mDialogs.size() || !isShowing() || mHidden) {
+            // 被遮挡或窗口已隐藏的内容无需动画
+            dialog.getWindowHostContentView().animate().cancel();
+            dialog.onRemovedFromWindowHost();
+            return;
+        }
+        fadeOut(dialog, true);
+        if (mDialogs.isEmpty()) {
+            mHandler.post(mHideIfEmpty);
+        } else {
+            bringToTop(mDialogs.get(mDialogs.size() - 1), true);
+        }
+    }
+
+    private void bringToTop(CocoaDialog dialog, boolean animate) {
+        View content = dialog.getWindowHostContentView();
+        content.animate().cancel();
+        content.setVisibility(View.VISIBLE);
+        if (animate) {
+            content.setAlpha(0);
+            content.animate().alpha(1).setDuration(mFadeDuration).setListener(null);
+        } else {
+            // 窗口新显示时由窗口动画负责淡入
+            content.setAlpha(1);
+        }
+        Boolean canceledOnTouchOutside = dialog.getCanceledOnTouchOutside();
+        setCanceledOnTouchOutside(canceledOnTouchOutside != null ? canceledOnTouchOutside : mDefaultCanceledOnTouchOutside);
+        setCancelable(dialog.isCancelable());
+        dialog.onWindowHostStart(getWindow());
+    }
+
+    private void fadeOut(final CocoaDialog dialog, final boolean remove) {
+        final View content = dialog.getWindowHostContentView();
+        content.animate().cancel();
+        content.animate().alpha(0).setDuration(mFadeDuration).setListener(new AnimatorListenerAdapter() {
+
+            private boolean mCancelled;
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                // 动画被再次显示取消时保留内容视图
+                mCancelled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                content.animate().setListener(null);
+                if (mCancelled) {
+                    return;
+                }
+                if (remove) {
+                    dialog.onRemovedFromWindowHost();
+                } else {
+                    content.setVisibility(View.GONE);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void hide() {
+        mHidden = true;
+        super.hide();
+    }
+
+    /**
+     * Back key and touches outside cancel the dialog on top instead of the shared window.
+     */
+    @Override
+    public void cancel() {
+        if (!mDialogs.isEmpty()) {
+            mDialogs.get(mDialogs.size() - 1).cancel();
+        }
+    }
+
+    private void release() {
+        mHandler.removeCallbacks(mHideIfEmpty);
+        // 窗口随即移除，对话框的内容无需淡出
+        mHidden = true;
+        for (int i = mDialogs.size() - 1; i >= 0; i--) {
+            mDialogs.get(i).dismiss();
+        }
+        dismiss();
+    }
+}
@@ -0,0 +1,137 @@
+package com.berwin.cocoadialog;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates the edit texts of a {@link CocoaDialog} on a background executor while the user types, and enables
+ * or disables the guarded actions by the result. Validation starts after the input has paused for the debounce
+ * time, a run superseded by newer input is skipped if it has not started, and its result is dropped otherwise.
+ */
+final class EditTextValidation implements TextWatcher {
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // 每次输入变化或重新显示时递增，用于识别过期的校验
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private final CocoaDialog mDialog;
+    private final List<EditText> mEditTextList;
+    private final EditTextValidator mValidator;
+    private final Executor mExecutor;
+    private final long mDebounceMillis;
+    private List<CocoaDialogAction> mGuardedActions;
+    private final Runnable mValidateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            validate();
+        }
+    };
+    private boolean mWatching;
+    private boolean mActive;
+
+    EditTextValidation(CocoaDialog dialog, List<EditText> editTextList, CocoaDialogSpec spec) {
+        this.mDialog = dialog;
+        this.mEditTextList = editTextList;
+        this.mValidator = spec.validator;
+        this.mExecutor = spec.validationExecutor;
+        this.mDebounceMillis = spec.validationDebounceMillis;
+        this.mGuardedActions = spec.guardedActions;
+    }
+
+    /**
+     * Start watching the edit texts and validate the current texts immediately, called when the dialog is shown.
+     */
+    void start() {
+        if (!mWatching) {
+            for (EditText editText : mEditTextList) {
+                editText.addTextChangedListener(this);
+            }
+            mWatching = true;
+        }
+        mActive = true;
+        validate();
+    }
+
+    /**
+     * Stop watching the edit texts and drop the pending and running validation, called when the dialog is dismissed.
+     */
+    void stop() {
+        if (mWatching) {
+            for (EditText editText : mEditTextList) {
+                editText.removeTextChangedListener(this);
+            }
+            mWatching = false;
+        }
+        mActive = false;
+        mMainHandler.removeCallbacks(mValidateRunnable);
+        mGeneration.incrementAndGet();
+    }
+
+    /**
+     * Guard the given actions instead, called when the dialog is updated with a new spec. The actions are validated
+     * again right away if the dialog is shown.
+     */
+    void setGuardedActions(List<CocoaDialogAction> guardedActions) {
+        mGuardedActions = guardedActions;
+        if (mActive) {
+            mMainHandler.removeCallbacks(mValidateRunnable);
+            validate();
+        }
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        if (!mActive) {
+            return;
+        }
+        // 使正在进行的校验失效，并在输入停顿后重新校验
+        mGeneration.incrementAndGet();
+        mMainHandler.removeCallbacks(mValidateRunnable);
+        mMainHandler.postDelayed(mValidateRunnable, mDebounceMillis);
+    }
+
+    private void validate() {
+        final int generation = mGeneration.incrementAndGet();
+        final String[] texts = new String[mEditTextList.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = mEditTextList.get(i).getText().toString();
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mGeneration.get() != generation) {
+                    return;
+                }
+                final boolean valid = mValidator.isValid(texts);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mGeneration.get() == generation) {
+                            apply(valid);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void apply(boolean valid) {
+        for (CocoaDialogAction action : mGuardedActions) {
+            mDialog.setActionEnabled(action, valid);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.berwin.cocoadialog;
+
+import android.support.annotation.NonNull;
+
+public interface EditTextValidator {
+    /**
+     * Validate the texts of the edit texts, called on the executor set by
+     * {@link CocoaDialog.Builder#setEditTextValidator(EditTextValidator, java.util.concurrent.Executor, long, CocoaDialogAction...)}.
+     *
+     * @param texts The texts of the edit texts, in the order they are added.
+     * @return Whether the texts are valid, the guarded actions are enabled only if true.
+     */
+    boolean isValid(@NonNull String[] texts);
+}
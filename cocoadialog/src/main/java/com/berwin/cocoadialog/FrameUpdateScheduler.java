@@ -0,0 +1,94 @@
+package com.berwin.cocoadialog;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces update requests from any thread into at most one {@link #onFrame()} call on the main thread per
+ * display frame. Producers store their latest value lock-free and call {@link #schedule()}, the value is
+ * read back in {@link #onFrame()}, so intermediate values are dropped.
+ */
+abstract class FrameUpdateScheduler {
+
+    private static final long FALLBACK_FRAME_INTERVAL_MS = 16;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+
+    private final Runnable mPostFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            postFrame();
+        }
+    };
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchFrame();
+        }
+    };
+    // Choreographer.FrameCallback，声明为Object以兼容API 16以下的设备
+    private Object mFrameCallback;
+
+    /**
+     * Request {@link #onFrame()} to run before the next frame, may be called from any thread.
+     * Requests made before it runs are coalesced into one call.
+     */
+    final void schedule() {
+        // 先读取再CAS，已有待执行的请求时多个生产者线程不会争抢同一缓存行
+        if (!mScheduled.get() && mScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                postFrame();
+            } else {
+                mMainHandler.post(mPostFrameRunnable);
+            }
+        }
+    }
+
+    /**
+     * Drop the pending request, if any. Must be called on the main thread.
+     */
+    final void cancel() {
+        mScheduled.set(false);
+        mMainHandler.removeCallbacks(mPostFrameRunnable);
+        mMainHandler.removeCallbacks(mDispatchRunnable);
+        if (mFrameCallback != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        }
+    }
+
+    /**
+     * Apply the latest value, called on the main thread at most once per frame.
+     */
+    abstract void onFrame();
+
+    private void postFrame() {
+        if (!mScheduled.get()) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (mFrameCallback == null) {
+                mFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        dispatchFrame();
+                    }
+                };
+            }
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        } else {
+            mMainHandler.postDelayed(mDispatchRunnable, FALLBACK_FRAME_INTERVAL_MS);
+        }
+    }
+
+    private void dispatchFrame() {
+        // 先清除标记再读取最新值，保证此后的更新会触发下一帧
+        if (mScheduled.compareAndSet(true, false)) {
+            onFrame();
+        }
+    }
+}
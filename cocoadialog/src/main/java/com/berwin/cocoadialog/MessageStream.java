@@ -0,0 +1,192 @@
+package com.berwin.cocoadialog;
+
+import android.text.Editable;
+import android.text.Layout;
+import android.text.SpannableStringBuilder;
+import android.text.TextUtils;
+import android.text.method.ScrollingMovementMethod;
+import android.view.Gravity;
+import android.widget.TextView;
+
+/**
+ * The message of a {@link CocoaDialog} in streaming mode. Lines appended from any thread are kept in a bounded
+ * ring buffer and appended to the message {@link TextView} in one batch per frame, which edits its text in place
+ * with one append and at most one delete of the oldest lines beyond the retained count, so the cost of an update
+ * grows neither with the count of lines of the frame nor with the total count of lines ever appended.
+ */
+final class MessageStream extends FrameUpdateScheduler {
+
+    // 消息区域最多显示的行数，超出后可滚动
+    private static final int VISIBLE_LINES = 8;
+
+    private final int mMaxLines;
+    private final boolean mAutoScroll;
+
+    // 等待显示的行，由生产者线程写入，超出容量时覆盖最旧的行
+    private final String[] mPendingLines;
+    private int mPendingStart;
+    private int mPendingSize;
+    private final String[] mDrainedLines;
+
+    // 以下仅在主线程访问
+    private Editable mText;
+    private int mLineCount;
+    // 一帧内追加的行，拼接后一次写入文本
+    private final StringBuilder mBatch = new StringBuilder();
+    private TextView mTextView;
+    private final Runnable mScrollToBottom = new Runnable() {
+        @Override
+        public void run() {
+            scrollToBottom();
+        }
+    };
+
+    MessageStream(int maxLines, boolean autoScroll, CharSequence initialText) {
+        this.mMaxLines = maxLines;
+        this.mAutoScroll = autoScroll;
+        this.mPendingLines = new String[maxLines];
+        this.mDrainedLines = new String[maxLines];
+        this.mText = new SpannableStringBuilder();
+        if (initialText != null) {
+            appendBatch(addToBatch(initialText.toString()));
+        }
+    }
+
+    /**
+     * Append a line, may be called from any thread.
+     */
+    void append(CharSequence line) {
+        String text = line == null ? "" : line.toString();
+        synchronized (this) {
+            int index = (mPendingStart + mPendingSize) % mPendingLines.length;
+            mPendingLines[index] = text;
+            if (mPendingSize < mPendingLines.length) {
+                mPendingSize++;
+            } else {
+                mPendingStart = (mPendingStart + 1) % mPendingLines.length;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Show the retained lines in the given message view, must be called on the main thread.
+     */
+    void bind(TextView textView) {
+        mTextView = textView;
+        textView.setGravity(Gravity.START | Gravity.CENTER_VERTICAL);
+        textView.setMaxLines(VISIBLE_LINES);
+        textView.setMovementMethod(ScrollingMovementMethod.getInstance());
+        textView.setText(mText, TextView.BufferType.EDITABLE);
+        // 之后直接在TextView的文本上增量修改
+        mText = textView.getEditableText();
+        if (mAutoScroll) {
+            textView.post(mScrollToBottom);
+        }
+    }
+
+    /**
+     * Keep the retained lines and restore the message view to its inflated state, must be called on the main thread.
+     */
+    void unbind() {
+        TextView textView = mTextView;
+        if (textView == null) {
+            return;
+        }
+        mTextView = null;
+        mText = new SpannableStringBuilder(mText);
+        textView.removeCallbacks(mScrollToBottom);
+        textView.setMovementMethod(null);
+        textView.setMaxLines(Integer.MAX_VALUE);
+        textView.setGravity(Gravity.CENTER);
+        textView.scrollTo(0, 0);
+    }
+
+    @Override
+    void onFrame() {
+        int count;
+        synchronized (this) {
+            count = mPendingSize;
+            for (int i = 0; i < count; i++) {
+                int index = (mPendingStart + i) % mPendingLines.length;
+                mDrainedLines[i] = mPendingLines[index];
+                mPendingLines[index] = null;
+            }
+            mPendingStart = 0;
+            mPendingSize = 0;
+        }
+        if (count == 0) {
+            return;
+        }
+        int lines = 0;
+        for (int i = 0; i < count; i++) {
+            lines += addToBatch(mDrainedLines[i]);
+            mDrainedLines[i] = null;
+        }
+        appendBatch(lines);
+        if (mAutoScroll && mTextView != null) {
+            mTextView.removeCallbacks(mScrollToBottom);
+            mTextView.post(mScrollToBottom);
+        }
+    }
+
+    /**
+     * Add a line to the batch of the frame, each line is preceded by a line break.
+     *
+     * @return The count of the lines added, more than one if the line contains line breaks.
+     */
+    private int addToBatch(String line) {
+        mBatch.append('\n').append(line);
+        int lines = 1;
+        for (int i = line.indexOf('\n'); i >= 0; i = line.indexOf('\n', i + 1)) {
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Append the batch to the text and drop the oldest lines beyond the retained count, with one append and at most
+     * one delete, or with one replace when the batch alone fills the retained count.
+     */
+    private void appendBatch(int lines) {
+        StringBuilder batch = mBatch;
+        if (lines >= mMaxLines) {
+            // 批次中更早的行及原有文本都不再保留，一次替换全部文本
+            int start = indexAfterLines(batch, lines - mMaxLines + 1);
+            mText.replace(0, mText.length(), batch, start, batch.length());
+            mLineCount = mMaxLines;
+        } else {
+            int excess = mLineCount + lines - mMaxLines;
+            if (excess > 0) {
+                mText.delete(0, indexAfterLines(mText, excess));
+                mLineCount -= excess;
+            }
+            // 文本为空时去掉批次开头的换行
+            mText.append(batch, mLineCount > 0 ? 0 : 1, batch.length());
+            mLineCount += lines;
+        }
+        batch.setLength(0);
+    }
+
+    /**
+     * Get the offset following the given count of line breaks in the text.
+     */
+    private static int indexAfterLines(CharSequence text, int count) {
+        int end = 0;
+        for (int i = 0; i < count; i++) {
+            end = TextUtils.indexOf(text, '\n', end) + 1;
+        }
+        return end;
+    }
+
+    private void scrollToBottom() {
+        TextView textView = mTextView;
+        Layout layout = textView == null ? null : textView.getLayout();
+        if (layout == null) {
+            return;
+        }
+        int visibleHeight = textView.getHeight() - textView.getTotalPaddingTop() - textView.getTotalPaddingBottom();
+        int scrollY = layout.getLineTop(textView.getLineCount()) - visibleHeight;
+        textView.scrollTo(0, scrollY > 0 ? scrollY : 0);
+    }
+}
@@ -0,0 +1,208 @@
+package com.berwin.cocoadialog;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.PrecomputedText;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.widget.TextView;
+
+import com.berwin.cocoadialog.utils.DimensionCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precomputes the text of the title and message of a {@link CocoaDialog} on a background executor.
+ *
+ * <p>On API 28 and above the text is measured into a {@link PrecomputedText} with the text metrics params of the title
+ * and message {@link TextView}, so the main thread skips measuring the text when it is set. The params are learned from
+ * the text views each time a precomputed dialog binds its text, and estimated from the header layout before that. A
+ * precomputed text whose params do not match the text view is not used, its plain text is set instead.</p>
+ *
+ * <p>Below API 28 the text is converted to the immutable form {@link TextView#setText(CharSequence)} would copy it
+ * into, and laid out once with the paint of the text view at the width of the header, which fills the process-wide glyph
+ * and word layout caches.</p>
+ */
+final class TextLayoutPrecomputer {
+
+    static final int TITLE = 0;
+    static final int MESSAGE = 1;
+
+    // 最近一次绑定时标题及信息TextView的文本测量参数，API 28及以上为PrecomputedText.Params，以下为TextPaint的副本
+    private static final AtomicReferenceArray<Object> sTextParams = new AtomicReferenceArray<>(2);
+
+    private final FutureTask<CharSequence[]> mTask;
+    // 按TITLE、MESSAGE存放不可变文本，及对应的预计算文本
+    private CharSequence[] mResult;
+
+    private TextLayoutPrecomputer(FutureTask<CharSequence[]> task) {
+        this.mTask = task;
+    }
+
+    /**
+     * Start precomputing the text on the given executor.
+     *
+     * @param context  The context the dialog is built with.
+     * @param spec     The spec of the dialog, its string resources are loaded on the executor.
+     * @param executor The background executor.
+     * @return {@link TextLayoutPrecomputer} instance.
+     */
+    static TextLayoutPrecomputer start(final Context context, final CocoaDialogSpec spec, Executor executor) {
+        CocoaDialogStyle style = spec.style;
+        DisplayMetrics dm = context.getResources().getDisplayMetrics();
+        DimensionCache dimens = DimensionCache.get(context);
+        // 与布局一致：alert宽度为屏幕短边的80%，actionSheet左右各留16dp，头部左右各12dp，TextView内边距1dp
+        int panelWidth = style == CocoaDialogStyle.alert
+                ? Math.round(Math.min(dm.widthPixels, dm.heightPixels) * 0.8f)
+                : dm.widthPixels - dimens.dip2px(32);
+        final int textWidth = Math.max(1, panelWidth - dimens.dip2px(24) - dimens.dip2px(2));
+        final Object titleParams = textParams(TITLE, 15, Typeface.DEFAULT_BOLD, dm);
+        final Object messageParams = textParams(MESSAGE, 13, null, dm);
+        FutureTask<CharSequence[]> task = new FutureTask<>(new Callable<CharSequence[]>() {
+            @Override
+            public CharSequence[] call() {
+                CharSequence title = immutable(spec.resolveTitle(context));
+                CharSequence message = immutable(spec.resolveMessage(context));
+                return new CharSequence[]{
+                        title, precompute(title, titleParams, textWidth),
+                        message, precompute(message, messageParams, textWidth)};
+            }
+        });
+        executor.execute(task);
+        return new TextLayoutPrecomputer(task);
+    }
+
+    /**
+     * Get the learned text metrics params of the role, or estimate them from the header layout if no text view has been
+     * bound yet.
+     */
+    private static Object textParams(int role, float textSizeSp, Typeface typeface, DisplayMetrics dm) {
+        Object params = sTextParams.get(role);
+        if (params != null) {
+            return params;
+        }
+        TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        paint.density = dm.density;
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, textSizeSp, dm));
+        paint.setTypeface(typeface);
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? Api28Impl.params(paint) : paint;
+    }
+
+    private static CharSequence immutable(CharSequence text) {
+        return text != null ? TextUtils.stringOrSpannedString(text) : null;
+    }
+
+    private static CharSequence precompute(CharSequence text, Object params, int width) {
+        if (text == null || Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Api28Impl.precompute(text, params);
+        }
+        // 没有PrecomputedText时按TextView的画笔排版一次，预热全局的字形及单词排版缓存
+        warmLayoutCaches(text, (TextPaint) params, width);
+        return null;
+    }
+
+    /**
+     * Lay out the text once, only used below API 28 where the constructor is the plain way to do so.
+     */
+    @SuppressWarnings("deprecation")
+    private static void warmLayoutCaches(CharSequence text, TextPaint paint, int width) {
+        new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_CENTER, 1f, 0f, true);
+    }
+
+    /**
+     * Get the text if the task has finished, otherwise cancel it so it does not compete with the main thread.
+     *
+     * @return The immutable title and message, or null if the task has not finished.
+     */
+    CharSequence[] consume() {
+        if (!mTask.isDone()) {
+            mTask.cancel(false);
+            return null;
+        }
+        try {
+            mResult = mTask.get();
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            return null;
+        }
+        return new CharSequence[]{mResult[TITLE * 2], mResult[MESSAGE * 2]};
+    }
+
+    /**
+     * Set the title or message to its text view, with the precomputed text if it was computed for this text and with
+     * the text metrics params of the text view. The params of the text view are kept for the following precomputations.
+     *
+     * @param textView The title or message text view.
+     * @param role     {@link #TITLE} or {@link #MESSAGE}.
+     * @param text     The text to set.
+     */
+    void setText(TextView textView, int role, CharSequence text) {
+        CharSequence precomputed = mResult != null && mResult[role * 2] == text ? mResult[role * 2 + 1] : null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            Object params = Api28Impl.params(textView);
+            sTextParams.set(role, params);
+            if (precomputed != null && Api28Impl.matches(precomputed, params)) {
+                textView.setText(precomputed);
+                return;
+            }
+        } else {
+            TextPaint paint = textView.getPaint();
+            // 参数未变时保留已有的副本，避免每次绑定都在主线程复制画笔
+            if (!sameMetrics((TextPaint) sTextParams.get(role), paint)) {
+                sTextParams.set(role, new TextPaint(paint));
+            }
+        }
+        textView.setText(text);
+    }
+
+    /**
+     * Whether the paints lay out text the same way, compared by the attributes the dialog's text views may differ in.
+     */
+    private static boolean sameMetrics(TextPaint stored, TextPaint paint) {
+        return stored != null
+                && stored.getTextSize() == paint.getTextSize()
+                && stored.getTypeface() == paint.getTypeface()
+                && stored.density == paint.density
+                && stored.getTextScaleX() == paint.getTextScaleX()
+                && stored.getTextSkewX() == paint.getTextSkewX()
+                && stored.getFlags() == paint.getFlags()
+                && stored.getTextLocale().equals(paint.getTextLocale());
+    }
+
+    /**
+     * The calls to the API 28 text classes, kept out of {@link TextLayoutPrecomputer} so it still verifies on older versions.
+     */
+    @TargetApi(Build.VERSION_CODES.P)
+    private static final class Api28Impl {
+
+        static Object params(TextPaint paint) {
+            return new PrecomputedText.Params.Builder(paint).build();
+        }
+
+        static Object params(TextView textView) {
+            return textView.getTextMetricsParams();
+        }
+
+        static CharSequence precompute(CharSequence text, Object params) {
+            return PrecomputedText.create(text, (PrecomputedText.Params) params);
+        }
+
+        static boolean matches(CharSequence precomputed, Object params) {
+            // 参数不一致时TextView.setText会抛出IllegalArgumentException
+            return ((PrecomputedText) precomputed).getParams().equals(params);
+        }
+    }
+}
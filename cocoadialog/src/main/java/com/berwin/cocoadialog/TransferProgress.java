@@ -0,0 +1,321 @@
+package com.berwin.cocoadialog;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the progress bar of a {@link CocoaDialog} by the bytes flowing through the streams and channels it wraps,
+ * such as a download or an upload, and shows the transferred size, the throughput and the remaining time below the message.
+ *
+ * <p>The wrapped streams may be used from any threads. Every read or write only adds to a lock-free counter, the dialog
+ * is updated on the main thread at most once per {@link #UPDATE_INTERVAL_MILLIS}, with the throughput smoothed by an
+ * exponential moving average.</p>
+ *
+ * <pre>
+ * TransferProgress progress = TransferProgress.bind(dialog, contentLength);
+ * InputStream in = progress.wrap(connection.getInputStream());
+ * </pre>
+ */
+public final class TransferProgress {
+
+    /**
+     * The minimum interval between two updates of the dialog.
+     */
+    public static final long UPDATE_INTERVAL_MILLIS = 250;
+
+    private static final long UPDATE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(UPDATE_INTERVAL_MILLIS);
+    // 吞吐量的指数移动平均中最新采样的权重
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    // 所属Activity销毁时置空，之后的更新被忽略，工作线程持有的包装流不再引用对话框
+    private volatile CocoaDialog mDialog;
+    private final long mTotalBytes;
+    private final CharSequence mMessage;
+    private final AtomicLong mTransferredBytes = new AtomicLong();
+    private final AtomicLong mLastScheduleNanos;
+    private final FrameUpdateScheduler mUpdater = new FrameUpdateScheduler() {
+        @Override
+        void onFrame() {
+            publish();
+        }
+    };
+
+    // 以下采样状态仅在主线程访问
+    private long mSampleNanos;
+    private long mSampleBytes;
+    private volatile double mBytesPerSecond = -1;
+
+    private TransferProgress(CocoaDialog dialog, long totalBytes) {
+        this.mDialog = dialog;
+        this.mTotalBytes = totalBytes;
+        this.mMessage = dialog.resolveSpecMessage();
+        long now = System.nanoTime();
+        this.mSampleNanos = now;
+        this.mLastScheduleNanos = new AtomicLong(now);
+    }
+
+    /**
+     * Bind a transfer to the given dialog, may be called from any thread.
+     * The progress stops updating the dialog once the activity of the dialog is destroyed.
+     *
+     * @param dialog     The dialog built with {@link CocoaDialog.Builder#addProgressBar(ProgressBarBuildHandler)}.
+     * @param totalBytes The total count of bytes to transfer, 0 or negative if unknown, then the progress bar is not updated.
+     * @return {@link TransferProgress} instance.
+     */
+    public static TransferProgress bind(@NonNull CocoaDialog dialog, long totalBytes) {
+        final TransferProgress progress = new TransferProgress(dialog, totalBytes);
+        dialog.addReleaseCallback(new Runnable() {
+            @Override
+            public void run() {
+                progress.release();
+            }
+        });
+        return progress;
+    }
+
+    /**
+     * Wrap an input stream, the bytes read or skipped are counted. Mark and reset are not supported.
+     *
+     * @param in The stream to wrap.
+     * @return The counting stream, closing it closes the wrapped stream.
+     */
+    public InputStream wrap(@NonNull InputStream in) {
+        return new CountingInputStream(in);
+    }
+
+    /**
+     * Wrap an output stream, the bytes written are counted.
+     *
+     * @param out The stream to wrap.
+     * @return The counting stream, closing it closes the wrapped stream.
+     */
+    public OutputStream wrap(@NonNull OutputStream out) {
+        return new CountingOutputStream(out);
+    }
+
+    /**
+     * Wrap a channel, the bytes read are counted.
+     *
+     * @param channel The channel to wrap.
+     * @return The counting channel, closing it closes the wrapped channel.
+     */
+    public ReadableByteChannel wrap(@NonNull ReadableByteChannel channel) {
+        return new CountingChannel(channel);
+    }
+
+    /**
+     * Count bytes transferred by other means, may be called from any thread.
+     *
+     * @param bytes The count of bytes transferred since the last call.
+     */
+    public void add(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        long transferred = mTransferredBytes.addAndGet(bytes);
+        long now = System.nanoTime();
+        long last = mLastScheduleNanos.get();
+        if ((now - last >= UPDATE_INTERVAL_NANOS || transferred == mTotalBytes) && mLastScheduleNanos.compareAndSet(last, now)) {
+            mUpdater.schedule();
+        }
+    }
+
+    /**
+     * @return The count of bytes transferred so far.
+     */
+    public long getTransferredBytes() {
+        return mTransferredBytes.get();
+    }
+
+    /**
+     * @return The total count of bytes to transfer, 0 or negative if unknown.
+     */
+    public long getTotalBytes() {
+        return mTotalBytes;
+    }
+
+    /**
+     * @return The smoothed throughput in bytes per second as of the last update of the dialog, negative if not measured yet.
+     */
+    public double getBytesPerSecond() {
+        return mBytesPerSecond;
+    }
+
+    /**
+     * @return The estimated remaining time in milliseconds as of the last update of the dialog, negative if unknown.
+     */
+    public long getRemainingMillis() {
+        double bytesPerSecond = mBytesPerSecond;
+        if (mTotalBytes <= 0 || bytesPerSecond <= 0) {
+            return -1;
+        }
+        long remaining = mTotalBytes - mTransferredBytes.get();
+        return remaining <= 0 ? 0 : (long) (remaining * 1000 / bytesPerSecond);
+    }
+
+    private void finish() {
+        // 关闭时立即刷新，保证最终的字节数被显示
+        mLastScheduleNanos.set(System.nanoTime());
+        mUpdater.schedule();
+    }
+
+    private void release() {
+        mDialog = null;
+        mUpdater.cancel();
+    }
+
+    private void publish() {
+        CocoaDialog dialog = mDialog;
+        if (dialog == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long transferred = mTransferredBytes.get();
+        if (now > mSampleNanos) {
+            double bytesPerSecond = (transferred - mSampleBytes) * 1e9 / (now - mSampleNanos);
+            double smoothed = mBytesPerSecond;
+            mBytesPerSecond = smoothed < 0 ? bytesPerSecond : smoothed + SMOOTHING_FACTOR * (bytesPerSecond - smoothed);
+            mSampleNanos = now;
+            mSampleBytes = transferred;
+        }
+        if (mTotalBytes > 0) {
+            dialog.setProgressFraction((float) ((double) transferred / mTotalBytes));
+        }
+        dialog.setMessage(formatStatus(dialog.getContext(), transferred));
+    }
+
+    private CharSequence formatStatus(Context context, long transferred) {
+        String size = Formatter.formatShortFileSize(context, transferred);
+        StringBuilder status = new StringBuilder();
+        if (!TextUtils.isEmpty(mMessage)) {
+            status.append(mMessage).append('\n');
+        }
+        if (mTotalBytes <= 0) {
+            return status.append(size);
+        }
+        status.append(context.getString(R.string.cocoa_dialog_transfer_progress, size, Formatter.formatShortFileSize(context, mTotalBytes)));
+        long remainingMillis = getRemainingMillis();
+        if (remainingMillis >= 0 && transferred < mTotalBytes) {
+            status.append('\n').append(context.getString(R.string.cocoa_dialog_transfer_speed,
+                    Formatter.formatShortFileSize(context, (long) mBytesPerSecond),
+                    DateUtils.formatElapsedTime(TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999))));
+        }
+        return status;
+    }
+
+    private final class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                add(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            add(count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long count = in.skip(n);
+            add(count);
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readLimit) {
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("Mark and reset are not supported.");
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            finish();
+        }
+    }
+
+    private final class CountingOutputStream extends FilterOutputStream {
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            add(1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream默认逐字节写入，直接批量写入被包装的流
+            out.write(b, off, len);
+            add(len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            finish();
+        }
+    }
+
+    private final class CountingChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel mChannel;
+
+        CountingChannel(ReadableByteChannel channel) {
+            this.mChannel = channel;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int count = mChannel.read(dst);
+            add(count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return mChannel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mChannel.close();
+            finish();
+        }
+    }
+}
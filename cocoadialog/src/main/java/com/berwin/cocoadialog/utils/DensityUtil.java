@@ -11,7 +11,6 @@ public class DensityUtil {
      * @return The value of pixels.
      */
     public static int dip2px(Context context, float dpValue) {
-        final float scale = context.getResources().getDisplayMetrics().density;
-        return (int) (dpValue * scale + 0.5f);
+        return DimensionCache.get(context).dip2px(dpValue);
     }
 }
@@ -0,0 +1,97 @@
+package com.berwin.cocoadialog.utils;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+
+/**
+ * A table of dip to pixel conversions computed once for the current display density, and invalidated
+ * when the configuration of the application changes or a context of another density asks for it.
+ */
+public final class DimensionCache {
+
+    private static final int MAX_CACHED_DIP = 64;
+
+    private static volatile DimensionCache sInstance;
+    private static boolean sCallbacksRegistered;
+
+    private final float mDensity;
+    private final int[] mPixels = new int[MAX_CACHED_DIP + 1];
+
+    private DimensionCache(float density) {
+        this.mDensity = density;
+        for (int i = 0; i <= MAX_CACHED_DIP; i++) {
+            mPixels[i] = (int) (i * density + 0.5f);
+        }
+    }
+
+    /**
+     * Get the dimension table of the display density of the given context.
+     *
+     * @param context The context instance.
+     * @return The dimension table.
+     */
+    public static DimensionCache get(Context context) {
+        DimensionCache cache = sInstance;
+        float density = context.getResources().getDisplayMetrics().density;
+        // 不同密度的上下文（如createConfigurationContext创建的或另一块屏幕上的）不能共用同一张表
+        if (cache == null || cache.mDensity != density) {
+            registerCallbacks(context);
+            cache = new DimensionCache(density);
+            sInstance = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Drop the current dimension table, the next call of {@link #get(Context)} computes a new one.
+     */
+    public static void invalidate() {
+        sInstance = null;
+    }
+
+    /**
+     * Change dip to the pixels.
+     *
+     * @param dpValue The value of the dip.
+     * @return The value of pixels.
+     */
+    public int dip2px(float dpValue) {
+        int index = (int) dpValue;
+        if (index == dpValue && index >= 0 && index <= MAX_CACHED_DIP) {
+            return mPixels[index];
+        }
+        return (int) (dpValue * mDensity + 0.5f);
+    }
+
+    /**
+     * Get the display density the table is computed with.
+     *
+     * @return The logical density of the display.
+     */
+    public float getDensity() {
+        return mDensity;
+    }
+
+    private static synchronized void registerCallbacks(Context context) {
+        if (sCallbacksRegistered) {
+            return;
+        }
+        Context applicationContext = context.getApplicationContext();
+        if (applicationContext == null) {
+            return;
+        }
+        applicationContext.registerComponentCallbacks(new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                // 屏幕密度可能随配置变化（如切换显示大小），下次使用时重新计算
+                invalidate();
+            }
+
+            @Override
+            public void onLowMemory() {
+            }
+        });
+        sCallbacksRegistered = true;
+    }
+}
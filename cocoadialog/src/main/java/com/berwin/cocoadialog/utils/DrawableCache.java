@@ -0,0 +1,151 @@
+package com.berwin.cocoadialog.utils;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.graphics.drawable.StateListDrawable;
+import android.support.annotation.DrawableRes;
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A cache of the constant states of the background drawables per resource configuration, so that each
+ * drawable resource is parsed once per configuration and every view gets a mutated copy sharing its constant state.
+ * Contexts with different configurations, such as activities with their own density or night mode, use separate caches.
+ * Invalidated when the configuration of the application changes. May be used from any thread, such as the
+ * content views built in the background by {@link com.berwin.cocoadialog.CocoaDialog.Builder#buildAsync}.
+ */
+public final class DrawableCache {
+
+    // 按钮按下时的背景色
+    private static final int PRESSED_COLOR = 0xFFE5E5EA;
+
+    // 按资源配置区分的缓存，由类锁保护
+    private static final Map<Configuration, DrawableCache> sCaches = new HashMap<>();
+    // 最近一次使用的缓存，配置相同时无需加锁查找
+    private static volatile DrawableCache sLastCache;
+    private static boolean sCallbacksRegistered;
+
+    private final Resources mResources;
+    private final Configuration mConfiguration;
+    private final SparseArray<Drawable.ConstantState> mStates = new SparseArray<>();
+    private final SparseArray<Drawable.ConstantState> mPressableStates = new SparseArray<>();
+
+    private DrawableCache(Resources resources, Configuration configuration) {
+        this.mResources = resources;
+        this.mConfiguration = configuration;
+    }
+
+    /**
+     * Get the drawable cache of the resource configuration of the given context.
+     *
+     * @param context The context instance.
+     * @return The drawable cache.
+     */
+    public static DrawableCache get(Context context) {
+        Resources resources = context.getResources();
+        Configuration configuration = resources.getConfiguration();
+        DrawableCache cache = sLastCache;
+        if (cache != null && cache.mConfiguration.equals(configuration)) {
+            return cache;
+        }
+        registerCallbacks(context);
+        synchronized (DrawableCache.class) {
+            cache = sCaches.get(configuration);
+            if (cache == null) {
+                // 复制配置作为键，Resources更新配置时不影响已有的缓存
+                cache = new DrawableCache(resources, new Configuration(configuration));
+                sCaches.put(cache.mConfiguration, cache);
+            }
+            sLastCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Drop all the cached drawables, the next call of {@link #get(Context)} creates a new cache.
+     */
+    public static void invalidate() {
+        synchronized (DrawableCache.class) {
+            sCaches.clear();
+            sLastCache = null;
+        }
+    }
+
+    /**
+     * Get a mutable copy of the drawable resource, the resource is parsed only the first time.
+     *
+     * @param resId The drawable or color resource id.
+     * @return A drawable which can be changed without affecting other copies.
+     */
+    @SuppressWarnings("deprecation")
+    public synchronized Drawable getDrawable(@DrawableRes int resId) {
+        Drawable.ConstantState state = mStates.get(resId);
+        if (state == null) {
+            Drawable drawable = mResources.getDrawable(resId);
+            state = drawable.getConstantState();
+            if (state == null) {
+                return drawable;
+            }
+            mStates.put(resId, state);
+        }
+        return state.newDrawable(mResources).mutate();
+    }
+
+    /**
+     * Get a mutable copy of the drawable resource with a generated pressed state.
+     *
+     * @param resId The drawable or color resource id of the normal state.
+     * @return A {@link StateListDrawable} showing the normal drawable in a darker color while pressed.
+     */
+    public synchronized Drawable getPressableDrawable(@DrawableRes int resId) {
+        Drawable.ConstantState state = mPressableStates.get(resId);
+        if (state == null) {
+            StateListDrawable drawable = new StateListDrawable();
+            drawable.addState(new int[]{android.R.attr.state_pressed}, createPressedDrawable(resId));
+            drawable.addState(new int[0], getDrawable(resId));
+            state = drawable.getConstantState();
+            mPressableStates.put(resId, state);
+        }
+        return state.newDrawable(mResources).mutate();
+    }
+
+    private Drawable createPressedDrawable(int resId) {
+        Drawable drawable = getDrawable(resId);
+        if (drawable instanceof GradientDrawable) {
+            // 保留形状及圆角，仅替换填充色
+            ((GradientDrawable) drawable).setColor(PRESSED_COLOR);
+            return drawable;
+        }
+        return new ColorDrawable(PRESSED_COLOR);
+    }
+
+    private static synchronized void registerCallbacks(Context context) {
+        if (sCallbacksRegistered) {
+            return;
+        }
+        Context applicationContext = context.getApplicationContext();
+        if (applicationContext == null) {
+            return;
+        }
+        applicationContext.registerComponentCallbacks(new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                // 资源可能随配置变化（如夜间模式、屏幕密度），下次使用时重新解析
+                invalidate();
+            }
+
+            @Override
+            public void onLowMemory() {
+                invalidate();
+            }
+        });
+        sCallbacksRegistered = true;
+    }
+}
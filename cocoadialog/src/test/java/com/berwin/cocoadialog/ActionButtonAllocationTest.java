@@ -0,0 +1,121 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+import android.widget.Button;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that, after a warm-up, repeated shows of a dialog allocate no action buttons or click listeners, and that
+ * dispatching a click and measuring, laying out and drawing {@link CocoaDialogLayout} allocate nothing in the library.
+ */
+@RunWith(AllocationTestRunner.class)
+@Config(sdk = 26)
+public class ActionButtonAllocationTest {
+
+    private static final int SHOWS = 5;
+
+    private Activity mActivity;
+    private AllocationCounter mCounter;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mCounter = new AllocationCounter(true).register();
+    }
+
+    @After
+    public void tearDown() {
+        mCounter.close();
+    }
+
+    @Test
+    public void repeatedShowsAllocateNoButtonsOrListeners() {
+        CocoaDialog dialog = newBuilder(CocoaDialogStyle.alert).build();
+        dialog.show();
+        dialog.dismiss();
+
+        // 每个对话框持有一个共享的点击分发器，在构建时创建
+        CocoaDialog[] others = new CocoaDialog[SHOWS];
+        for (int i = 0; i < SHOWS; i++) {
+            others[i] = newBuilder(CocoaDialogStyle.alert).build();
+        }
+        mCounter.start();
+        for (int i = 0; i < SHOWS; i++) {
+            dialog.show();
+            dialog.dismiss();
+            others[i].show();
+            others[i].dismiss();
+        }
+        mCounter.stop();
+        assertEquals("Buttons allocated", 0, mCounter.countOf(Button.class));
+        assertEquals("Click listeners allocated", 0, mCounter.countOf(View.OnClickListener.class));
+    }
+
+    @Test
+    public void clickDispatchAllocatesNothing() {
+        CocoaDialog dialog = newBuilder(CocoaDialogStyle.actionSheet).build();
+        dialog.show();
+        Button button = DialogTestHelper.findButton(DialogTestHelper.decorView(dialog), "OK");
+        assertNotNull("No OK button found", button);
+
+        mCounter.start();
+        button.performClick();
+        mCounter.stop();
+        assertFalse(dialog.isShowing());
+        // 点击后关闭对话框本身的开销不计入分发
+        assertNoLibraryAllocations(mCounter.librarySites("CocoaDialog", "dismiss"));
+    }
+
+    @Test
+    public void measureLayoutAndDrawAllocateNothing() {
+        for (CocoaDialogStyle style : new CocoaDialogStyle[]{CocoaDialogStyle.alert, CocoaDialogStyle.actionSheet}) {
+            CocoaDialog dialog = newBuilder(style).build();
+            dialog.show();
+            CocoaDialogLayout layout = DialogTestHelper.findView(DialogTestHelper.decorView(dialog), CocoaDialogLayout.class);
+            assertNotNull(layout);
+            int widthSpec = View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY);
+            int heightSpec = View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.AT_MOST);
+            layout.measure(widthSpec, heightSpec);
+            layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+            Canvas canvas = new Canvas(Bitmap.createBitmap(layout.getMeasuredWidth(), layout.getMeasuredHeight(), Bitmap.Config.ARGB_8888));
+
+            mCounter.start();
+            layout.forceLayout();
+            layout.measure(widthSpec, heightSpec);
+            layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+            layout.draw(canvas);
+            mCounter.stop();
+            assertNoLibraryAllocations(mCounter.librarySites(null, null));
+            dialog.dismiss();
+        }
+    }
+
+    private static void assertNoLibraryAllocations(List<String> sites) {
+        assertEquals("Allocated at " + sites, Collections.<String>emptyList(), sites);
+    }
+
+    private CocoaDialog.Builder newBuilder(CocoaDialogStyle style) {
+        return new CocoaDialog.Builder(mActivity, style)
+                .setTitle("Title for CocoaDialog")
+                .setMessage("This is a message.")
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null))
+                .addAction(new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, null))
+                .addAction(new CocoaDialogAction("Delete", CocoaDialogActionStyle.destructive, null));
+    }
+}
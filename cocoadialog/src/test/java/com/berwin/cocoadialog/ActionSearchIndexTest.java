@@ -0,0 +1,175 @@
+package com.berwin.cocoadialog;
+
+import android.graphics.Typeface;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the matches of {@link ActionSearchIndex} against a brute-force search, the incremental narrowing from the
+ * previous result, and the spans of {@link ActionSearchIndex#highlight(CharSequence, String[])}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ActionSearchIndexTest {
+
+    private static final String[] WORDS = {"open", "save", "share", "copy", "move", "rename", "delete", "print",
+            "export", "photo", "Photos", "album", "sync", "2048", "拍照", "从相册选择", "相册"};
+    // 逐字输入的查询，每个前缀都查询一次
+    private static final String[] QUERIES = {"save ph", "Share PHOTO", "相册", "选择", "sh ph", "20", "de  co", "xyz"};
+
+    @Test
+    public void incrementalQueriesMatchFreshQueries() {
+        List<String> titles = newTitles(2000);
+        ActionSearchIndex index = ActionSearchIndex.build(titles);
+        for (String query : QUERIES) {
+            ActionSearchIndex.Result previous = null;
+            for (int length = 1; length <= query.length(); length++) {
+                String typed = query.substring(0, length);
+                ActionSearchIndex.Result incremental = index.query(typed, previous);
+                ActionSearchIndex.Result fresh = index.query(typed, null);
+                assertArrayEquals("Query \"" + typed + "\"", fresh.getPositions(), incremental.getPositions());
+                assertArrayEquals("Query \"" + typed + "\"", bruteForce(titles, typed), fresh.getPositions());
+                previous = incremental;
+            }
+        }
+    }
+
+    @Test
+    public void narrowingIgnoresResultOfAnotherIndex() {
+        List<String> titles = newTitles(500);
+        ActionSearchIndex index = ActionSearchIndex.build(titles);
+        ActionSearchIndex other = ActionSearchIndex.build(Arrays.asList("Save", "Share"));
+        ActionSearchIndex.Result foreign = other.query("sa", null);
+        assertArrayEquals(bruteForce(titles, "sav"), index.query("sav", foreign).getPositions());
+    }
+
+    @Test
+    public void queryWithoutTokensMatchesEverything() {
+        ActionSearchIndex index = ActionSearchIndex.build(Arrays.asList("Save", null, "Share"));
+        assertNull(index.query("", null).getPositions());
+        assertNull(index.query(" - ", null).getPositions());
+        // 空标题不匹配任何查询
+        assertArrayEquals(new int[]{0, 2}, index.query("s", null).getPositions());
+    }
+
+    @Test
+    public void matchesWordStartsCaseInsensitively() {
+        ActionSearchIndex index = ActionSearchIndex.build(Arrays.asList("Save photo", "Escape", "SHARE-Photo", "从相册选择"));
+        assertArrayEquals(new int[]{0}, index.query("SA", null).getPositions());
+        assertArrayEquals(new int[]{0, 2}, index.query("pho", null).getPositions());
+        assertArrayEquals(new int[]{2}, index.query("photo sh", null).getPositions());
+        // 单词中间不匹配，中文标题的任意位置都可匹配
+        assertArrayEquals(new int[0], index.query("cape", null).getPositions());
+        assertArrayEquals(new int[]{3}, index.query("相册", null).getPositions());
+        assertArrayEquals(new int[]{3}, index.query("选择", null).getPositions());
+    }
+
+    @Test
+    public void highlightsMatchedPrefixes() {
+        assertBold(ActionSearchIndex.highlight("Save photo", ActionSearchIndex.tokenize("PH")), 5, 7);
+        assertBold(ActionSearchIndex.highlight("Save photo", ActionSearchIndex.tokenize("ph sa")), 0, 2, 5, 7);
+        // 中文标题中间的匹配
+        assertBold(ActionSearchIndex.highlight("从相册选择", ActionSearchIndex.tokenize("相册")), 1, 3);
+        // 标题中出现两次时只加粗第一个词元开头的匹配，单词中间的出现不加粗
+        assertBold(ActionSearchIndex.highlight("Deco copy, Copy link", ActionSearchIndex.tokenize("co")), 5, 7);
+        assertBold(ActionSearchIndex.highlight("相册相册", ActionSearchIndex.tokenize("相册")), 0, 2);
+        // 查询中重复的词元指向同一处
+        assertBold(ActionSearchIndex.highlight("Copy link", ActionSearchIndex.tokenize("co co")), 0, 2, 0, 2);
+    }
+
+    @Test
+    public void highlightWithoutMatchReturnsTitle() {
+        String title = "Escape";
+        assertSame(title, ActionSearchIndex.highlight(title, ActionSearchIndex.tokenize("cape")));
+        assertSame(title, ActionSearchIndex.highlight(title, ActionSearchIndex.tokenize("")));
+        assertNull(ActionSearchIndex.highlight(null, ActionSearchIndex.tokenize("es")));
+    }
+
+    /**
+     * Assert the bold spans of the text, the expected ranges are given as start and end pairs in any order.
+     */
+    private static void assertBold(CharSequence text, int... ranges) {
+        assertTrue(text instanceof Spanned);
+        Spanned spanned = (Spanned) text;
+        List<String> actual = new ArrayList<>();
+        for (StyleSpan span : spanned.getSpans(0, spanned.length(), StyleSpan.class)) {
+            assertEquals(Typeface.BOLD, span.getStyle());
+            actual.add(spanned.getSpanStart(span) + "-" + spanned.getSpanEnd(span));
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            expected.add(ranges[i] + "-" + ranges[i + 1]);
+        }
+        Collections.sort(actual);
+        Collections.sort(expected);
+        assertEquals(expected, actual);
+    }
+
+    private static List<String> newTitles(int count) {
+        Random random = new Random(7);
+        List<String> titles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            int words = 1 + random.nextInt(3);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    title.append(random.nextBoolean() ? " " : "-");
+                }
+                title.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            titles.add(title.toString());
+        }
+        return titles;
+    }
+
+    /**
+     * Match every title against the query without an index: each query token must start at a token start of the title.
+     */
+    private static int[] bruteForce(List<String> titles, String query) {
+        String[] tokens = ActionSearchIndex.tokenize(query);
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < titles.size(); i++) {
+            String title = titles.get(i).toLowerCase(Locale.ROOT);
+            boolean matches = true;
+            for (String token : tokens) {
+                boolean found = false;
+                for (int start = 0; start < title.length() && !found; start++) {
+                    found = isTokenStart(title, start) && title.startsWith(token, start);
+                }
+                matches &= found;
+            }
+            if (matches) {
+                positions.add(i);
+            }
+        }
+        int[] result = new int[positions.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = positions.get(i);
+        }
+        return result;
+    }
+
+    private static boolean isTokenStart(String text, int index) {
+        char c = text.charAt(index);
+        return Character.isLetterOrDigit(c) && (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1))
+                || Character.getType(c) == Character.OTHER_LETTER);
+    }
+}
@@ -0,0 +1,181 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.widget.EditText;
+import android.widget.ListAdapter;
+import android.widget.ListView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Types into the search field of a searchable action sheet, running the index builds and the queries of
+ * {@link ActionSheetSearch} one by one, and checks that stale queries and results of an outdated index are dropped.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ActionSheetSearchTest {
+
+    private static final List<String> TITLES = Arrays.asList("Save photo", "Share photo", "Save video", "Delete", "从相册选择");
+
+    /**
+     * An executor whose tasks run only when asked.
+     */
+    private static final class QueuedExecutor implements Executor {
+
+        final Queue<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runNext() {
+            Runnable task = mTasks.poll();
+            assertNotNull("No task queued", task);
+            task.run();
+        }
+    }
+
+    private final QueuedExecutor mExecutor = new QueuedExecutor();
+    private Activity mActivity;
+    private CocoaDialog mDialog;
+    private EditText mSearchField;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        // 查询结果回到主线程的消息在idle前不执行，以便在其间插入新的输入
+        ShadowLooper.pauseMainLooper();
+        mDialog = newBuilder(TITLES).build();
+        mDialog.show();
+        ShadowLooper.idleMainLooper();
+        mSearchField = DialogTestHelper.findView(DialogTestHelper.decorView(mDialog), EditText.class);
+        assertNotNull(mSearchField);
+        // 构建索引，完成后以空查询显示全部按钮
+        mExecutor.runNext();
+        ShadowLooper.idleMainLooper();
+        runQueries();
+    }
+
+    @After
+    public void tearDown() {
+        mDialog.dismiss();
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void showsMatchingActions() {
+        type("sa");
+        runQueries();
+        assertEquals(Arrays.asList("Save photo", "Save video"), shownTitles());
+
+        type("save v");
+        runQueries();
+        assertEquals(Collections.singletonList("Save video"), shownTitles());
+
+        type("相册");
+        runQueries();
+        assertEquals(Collections.singletonList("从相册选择"), shownTitles());
+
+        type("");
+        runQueries();
+        assertEquals(TITLES, shownTitles());
+    }
+
+    @Test
+    public void skipsQuerySupersededBeforeItRuns() {
+        type("sa");
+        type("sh");
+        assertEquals(2, mExecutor.mTasks.size());
+        // 过期的查询不再执行，也不改变列表
+        mExecutor.runNext();
+        ShadowLooper.idleMainLooper();
+        assertEquals(TITLES, shownTitles());
+        mExecutor.runNext();
+        ShadowLooper.idleMainLooper();
+        assertEquals(Collections.singletonList("Share photo"), shownTitles());
+    }
+
+    @Test
+    public void dropsResultOfQuerySupersededWhileRunning() {
+        type("sa");
+        mExecutor.runNext();
+        // 结果回到主线程之前输入已变化
+        type("de");
+        ShadowLooper.idleMainLooper();
+        assertEquals(TITLES, shownTitles());
+        runQueries();
+        assertEquals(Collections.singletonList("Delete"), shownTitles());
+    }
+
+    @Test
+    public void dropsQueryOfReplacedActions() {
+        type("sa");
+        mExecutor.runNext();
+        // 旧索引的查询结果尚未回到主线程时更换按钮
+        List<String> titles = Arrays.asList("Sandbox", "Salt", "Pepper");
+        mDialog.update(newBuilder(titles).buildSpec());
+        ShadowLooper.idleMainLooper();
+        assertEquals("Old result applied to the new actions", titles, shownTitles());
+
+        // 新索引构建完成后以当前输入重新查询
+        mExecutor.runNext();
+        ShadowLooper.idleMainLooper();
+        runQueries();
+        assertEquals(Arrays.asList("Sandbox", "Salt"), shownTitles());
+    }
+
+    private void type(String text) {
+        mSearchField.setText(text);
+    }
+
+    /**
+     * Run the queued queries and apply their results on the main thread.
+     */
+    private void runQueries() {
+        while (!mExecutor.mTasks.isEmpty()) {
+            mExecutor.runNext();
+            ShadowLooper.idleMainLooper();
+        }
+    }
+
+    private List<String> shownTitles() {
+        ListView listView = DialogTestHelper.findView(DialogTestHelper.decorView(mDialog), ListView.class);
+        assertNotNull(listView);
+        ListAdapter adapter = listView.getAdapter();
+        List<String> titles = new ArrayList<>(adapter.getCount());
+        for (int i = 0; i < adapter.getCount(); i++) {
+            titles.add(((CocoaDialogAction) adapter.getItem(i)).getTitle(mActivity));
+        }
+        return titles;
+    }
+
+    private CocoaDialog.Builder newBuilder(List<String> titles) {
+        CocoaDialog.Builder builder = new CocoaDialog.Builder(mActivity, CocoaDialogStyle.actionSheet)
+                .setActionSearchExecutor(mExecutor)
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+        for (String title : titles) {
+            builder.addAction(new CocoaDialogAction(title, CocoaDialogActionStyle.normal, null));
+        }
+        return builder;
+    }
+}
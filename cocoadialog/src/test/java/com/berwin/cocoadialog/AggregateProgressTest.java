@@ -0,0 +1,179 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reports the progress of 64 tasks from 64 threads at once through {@link AggregateProgress}, checking that the
+ * overall progress observed meanwhile never decreases and that the final totals are exact, and adds tasks while
+ * workers report, checking that the progress never exceeds 1 and only drops when a task is added.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class AggregateProgressTest {
+
+    private static final int THREADS = 64;
+    private static final int STEPS = 2000;
+    private static final int WORKERS = 8;
+    private static final int ADDED_TASKS = 500;
+
+    @Test
+    public void concurrentWorkers() throws InterruptedException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        CocoaDialog dialog = DialogTestHelper.newProgressAlert(activity, "Sync", "Syncing files").build();
+        dialog.show();
+
+        final AggregateProgress progress = AggregateProgress.bind(dialog);
+        final List<AggregateProgress.Task> tasks = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(progress.newTask(1 + i % 4));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> error = new AtomicReference<>();
+        Thread observer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                float last = 0;
+                while (running.get()) {
+                    float fraction = progress.getFraction();
+                    if (fraction < last || fraction > 1) {
+                        error.compareAndSet(null, "The progress went from " + last + " to " + fraction);
+                    }
+                    last = fraction;
+                }
+            }
+        });
+        List<Thread> workers = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            final int index = i;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    AggregateProgress.Task task = tasks.get(index);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int step = 1; step <= STEPS; step++) {
+                        task.setProgress(step, STEPS);
+                        // 倒退的进度应被忽略
+                        task.setProgress(step / 2, STEPS);
+                    }
+                    if (index % 8 == 0) {
+                        task.fail();
+                    } else {
+                        task.complete();
+                    }
+                    task.complete();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        observer.start();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        running.set(false);
+        observer.join();
+
+        assertNull(error.get(), error.get());
+        assertEquals(1f, progress.getFraction(), 0f);
+        assertEquals(THREADS, progress.getTaskCount());
+        assertEquals(THREADS / 8, progress.getFailedCount());
+        assertEquals(THREADS - THREADS / 8, progress.getCompletedCount());
+
+        // 依次执行AggregateProgress及对话框的帧更新
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(100, dialog.getProgress());
+        TextView messageText = dialog.getWindow().getDecorView().findViewById(R.id.message);
+        assertEquals("Syncing files\n" + (THREADS - THREADS / 8) + " / " + THREADS + " completed, " + THREADS / 8 + " failed",
+                messageText.getText().toString());
+        dialog.dismiss();
+    }
+
+    @Test
+    public void tasksAddedWhileWorkersRun() throws InterruptedException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        CocoaDialog dialog = DialogTestHelper.newProgressAlert(activity, "Sync", "Syncing files").build();
+        dialog.show();
+
+        final AggregateProgress progress = AggregateProgress.bind(dialog);
+        final BlockingQueue<AggregateProgress.Task> queue = new LinkedBlockingQueue<>();
+        final AtomicBoolean adding = new AtomicBoolean(true);
+        final AtomicReference<String> error = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (adding.get() || !queue.isEmpty()) {
+                            AggregateProgress.Task task = queue.poll(1, TimeUnit.MILLISECONDS);
+                            if (task == null) {
+                                continue;
+                            }
+                            for (int step = 1; step <= STEPS; step++) {
+                                task.setProgress(step, STEPS);
+                            }
+                            task.complete();
+                        }
+                    } catch (InterruptedException e) {
+                        error.compareAndSet(null, "Interrupted");
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        // 只有当前线程添加任务，两次添加之间观察到的进度不应下降
+        try {
+            for (int i = 0; i < ADDED_TASKS; i++) {
+                queue.add(progress.newTask(1 + i % 4));
+                float fraction = progress.getFraction();
+                for (int sample = 0; sample < 100; sample++) {
+                    float next = progress.getFraction();
+                    assertTrue("The progress exceeded 1: " + next, next <= 1);
+                    assertTrue("The progress went from " + fraction + " to " + next, next >= fraction);
+                    fraction = next;
+                }
+            }
+        } finally {
+            adding.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        assertNull(error.get(), error.get());
+        assertEquals(1f, progress.getFraction(), 0f);
+        assertEquals(ADDED_TASKS, progress.getTaskCount());
+        assertEquals(ADDED_TASKS, progress.getCompletedCount());
+        dialog.dismiss();
+    }
+}
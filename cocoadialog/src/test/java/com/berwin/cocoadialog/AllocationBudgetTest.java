@@ -0,0 +1,181 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.widget.Button;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the allocations of {@link CocoaDialog.Builder#build()}, {@link CocoaDialog#show()}, the click dispatch of
+ * an action button and {@link CocoaDialog#dismiss()} on the main thread against the budgets checked in at
+ * {@code allocation-budgets.properties}.
+ *
+ * <p>The measured values are written to the file of the {@code allocation.results} system property. When the
+ * {@code allocation.record} system property is set, the budgets are not checked but rewritten to its file from the
+ * measured values plus a margin.</p>
+ */
+@RunWith(AllocationTestRunner.class)
+@Config(sdk = 26)
+public class AllocationBudgetTest {
+
+    // 记录预算时在实测值上增加的余量
+    private static final double RECORD_MARGIN = 1.1;
+    private static final String BUDGETS_HEADER = "# Allocation budgets of CocoaDialog on the main thread, checked by AllocationBudgetTest.\n"
+            + "# Keys are <style>.<phase>.count for the count of objects and <style>.<phase>.bytes for their size.\n"
+            + "# Measured after one warm-up show, so the view pool and the drawable cache are populated.\n"
+            + "# Recorded from the measured values plus 10% by ./gradlew :cocoadialog:allocationTest -Pallocation.record,\n"
+            + "# record again whenever a change allocates less.\n";
+
+    private static final Map<String, Long> sMeasured = new TreeMap<>();
+
+    private final Properties mBudgets = new Properties();
+    private AllocationCounter mRecorder;
+    private Activity mActivity;
+
+    @Before
+    public void setUp() throws IOException {
+        InputStream in = getClass().getClassLoader().getResourceAsStream("allocation-budgets.properties");
+        assertNotNull("allocation-budgets.properties not found", in);
+        try {
+            mBudgets.load(in);
+        } finally {
+            in.close();
+        }
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mRecorder = new AllocationCounter(false).register();
+    }
+
+    @After
+    public void tearDown() {
+        mRecorder.close();
+    }
+
+    @AfterClass
+    public static void writeMeasured() throws IOException {
+        String results = System.getProperty("allocation.results");
+        if (results != null) {
+            write(new File(results), "# Allocations measured by AllocationBudgetTest.\n", 1);
+        }
+        String record = System.getProperty("allocation.record");
+        if (record != null) {
+            write(new File(record), BUDGETS_HEADER, RECORD_MARGIN);
+        }
+    }
+
+    private static void write(File file, String header, double margin) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can not create the directory " + parent);
+        }
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(header);
+            for (Map.Entry<String, Long> entry : sMeasured.entrySet()) {
+                writer.write(entry.getKey() + "=" + (long) Math.ceil(entry.getValue() * margin) + "\n");
+            }
+        }
+    }
+
+    @Test
+    public void alert() {
+        checkBudgets(CocoaDialogStyle.alert);
+    }
+
+    @Test
+    public void actionSheet() {
+        checkBudgets(CocoaDialogStyle.actionSheet);
+    }
+
+    @Test
+    public void custom() {
+        checkBudgets(CocoaDialogStyle.custom);
+    }
+
+    private void checkBudgets(CocoaDialogStyle style) {
+        // 预热一次，加载类并填充复用池及缓存
+        CocoaDialog warmUp = newBuilder(style).build();
+        warmUp.show();
+        warmUp.dismiss();
+
+        CocoaDialog.Builder builder = newBuilder(style);
+        mRecorder.start();
+        CocoaDialog dialog = builder.build();
+        mRecorder.stop();
+        check(style, "build");
+
+        mRecorder.start();
+        dialog.show();
+        mRecorder.stop();
+        check(style, "show");
+
+        mRecorder.start();
+        dialog.dismiss();
+        mRecorder.stop();
+        check(style, "dismiss");
+
+        if (style == CocoaDialogStyle.custom) {
+            return;
+        }
+        dialog.show();
+        Button button = DialogTestHelper.findActionButton(DialogTestHelper.decorView(dialog));
+        assertNotNull("No action button found", button);
+        mRecorder.start();
+        button.performClick();
+        mRecorder.stop();
+        check(style, "click");
+        assertFalse("The dialog should be dismissed by the click", dialog.isShowing());
+    }
+
+    private void check(CocoaDialogStyle style, String phase) {
+        String key = style + "." + phase;
+        sMeasured.put(key + ".count", mRecorder.getCount());
+        sMeasured.put(key + ".bytes", mRecorder.getBytes());
+        if (System.getProperty("allocation.record") != null) {
+            return;
+        }
+        String measured = key + " allocated " + mRecorder.getCount() + " objects, " + mRecorder.getBytes() + " bytes";
+        String countBudget = mBudgets.getProperty(key + ".count");
+        String bytesBudget = mBudgets.getProperty(key + ".bytes");
+        if (countBudget == null || bytesBudget == null) {
+            fail(measured + ", no budget found for " + key);
+        }
+        if (mRecorder.getCount() > Long.parseLong(countBudget) || mRecorder.getBytes() > Long.parseLong(bytesBudget)) {
+            fail(measured + ", exceeding the budget of " + countBudget + " objects, " + bytesBudget + " bytes");
+        }
+    }
+
+    private CocoaDialog.Builder newBuilder(CocoaDialogStyle style) {
+        CocoaDialog.Builder builder = new CocoaDialog.Builder(mActivity, style);
+        if (style == CocoaDialogStyle.custom) {
+            TextView contentView = new TextView(mActivity);
+            contentView.setText("Custom content view");
+            return builder.setCustomContentView(contentView);
+        }
+        builder.setTitle("Title for CocoaDialog").setMessage("This is a message.");
+        builder.addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+        builder.addAction(new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, null));
+        if (style == CocoaDialogStyle.actionSheet) {
+            builder.addAction(new CocoaDialogAction("Delete", CocoaDialogActionStyle.destructive, null));
+        }
+        return builder;
+    }
+}
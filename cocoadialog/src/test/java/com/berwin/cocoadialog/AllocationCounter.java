@@ -0,0 +1,156 @@
+package com.berwin.cocoadialog;
+
+import com.google.monitoring.runtime.instrumentation.AllocationRecorder;
+import com.google.monitoring.runtime.instrumentation.Sampler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts the allocations of the thread that creates it between {@link #start()} and {@link #stop()}, and optionally
+ * records the allocations made by the code of the library with their stack traces.
+ * Allocations made by the samplers themselves are not recorded by the agent.
+ */
+final class AllocationCounter implements Sampler {
+
+    private static final String LIBRARY_PACKAGE = "com.berwin.cocoadialog.";
+
+    private final Thread mThread = Thread.currentThread();
+    private final boolean mRecordLibrarySites;
+    private volatile boolean mRecording;
+    private long mCount;
+    private long mBytes;
+    private final List<Class<?>> mTypes = new ArrayList<>();
+    private final List<StackTraceElement[]> mLibrarySites = new ArrayList<>();
+
+    /**
+     * @param recordLibrarySites Whether to record the stack traces of the allocations made by the library.
+     */
+    AllocationCounter(boolean recordLibrarySites) {
+        this.mRecordLibrarySites = recordLibrarySites;
+    }
+
+    /**
+     * Register to the agent, {@link #close()} unregisters.
+     */
+    AllocationCounter register() {
+        AllocationRecorder.addSampler(this);
+        return this;
+    }
+
+    void close() {
+        AllocationRecorder.removeSampler(this);
+    }
+
+    @Override
+    public void sampleAllocation(int count, String desc, Object newObj, long size) {
+        if (!mRecording || Thread.currentThread() != mThread) {
+            return;
+        }
+        mCount++;
+        mBytes += size;
+        mTypes.add(newObj.getClass());
+        if (mRecordLibrarySites) {
+            StackTraceElement[] stack = new Throwable().getStackTrace();
+            StackTraceElement site = allocationSite(stack);
+            if (site != null && isLibraryClass(site.getClassName())) {
+                mLibrarySites.add(stack);
+            }
+        }
+    }
+
+    void start() {
+        mCount = 0;
+        mBytes = 0;
+        mTypes.clear();
+        mLibrarySites.clear();
+        mRecording = true;
+    }
+
+    void stop() {
+        mRecording = false;
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    long getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * @return The count of the objects allocated of the given type, including its subtypes.
+     */
+    int countOf(Class<?> type) {
+        int count = 0;
+        for (Class<?> allocated : mTypes) {
+            if (type.isAssignableFrom(allocated)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Describe the allocations made by the library, except those made while the given method of the library runs.
+     *
+     * @param excludedClass  The simple name of the class of the excluded method, null to exclude nothing.
+     * @param excludedMethod The name of the excluded method.
+     * @return One line per allocation with its site, empty if none.
+     */
+    List<String> librarySites(String excludedClass, String excludedMethod) {
+        List<String> sites = new ArrayList<>();
+        for (StackTraceElement[] stack : mLibrarySites) {
+            if (excludedClass != null && contains(stack, LIBRARY_PACKAGE + excludedClass, excludedMethod)) {
+                continue;
+            }
+            sites.add(String.valueOf(allocationSite(stack)));
+        }
+        return sites;
+    }
+
+    /**
+     * Describe the allocations made directly in the given methods of a class of the library.
+     *
+     * @param className   The simple name of the class.
+     * @param methodNames The names of the methods.
+     * @return One line per allocation with its site, empty if none.
+     */
+    List<String> librarySitesIn(String className, String... methodNames) {
+        List<String> sites = new ArrayList<>();
+        for (StackTraceElement[] stack : mLibrarySites) {
+            StackTraceElement site = allocationSite(stack);
+            if (site.getClassName().equals(LIBRARY_PACKAGE + className) && Arrays.asList(methodNames).contains(site.getMethodName())) {
+                sites.add(String.valueOf(site));
+            }
+        }
+        return sites;
+    }
+
+    private static StackTraceElement allocationSite(StackTraceElement[] stack) {
+        // 跳过采样器及Agent自身的栈帧，第一个其余的栈帧即为分配对象的代码
+        for (StackTraceElement element : stack) {
+            String className = element.getClassName();
+            if (!className.startsWith("com.google.monitoring.") && !className.equals(AllocationCounter.class.getName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isLibraryClass(String className) {
+        // 测试代码与本库位于同一个包中
+        return className.startsWith(LIBRARY_PACKAGE) && !className.contains("Test") && !className.startsWith(LIBRARY_PACKAGE + "CountingActivity");
+    }
+
+    private static boolean contains(StackTraceElement[] stack, String className, String methodName) {
+        for (StackTraceElement element : stack) {
+            if (element.getClassName().equals(className) && element.getMethodName().equals(methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
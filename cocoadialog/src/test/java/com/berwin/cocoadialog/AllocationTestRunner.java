@@ -0,0 +1,24 @@
+package com.berwin.cocoadialog;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+
+/**
+ * Runs the allocation tests, sharing the allocation recorder of the Java agent with the test instead of loading it
+ * again in the sandbox.
+ */
+public class AllocationTestRunner extends RobolectricTestRunner {
+
+    public AllocationTestRunner(Class<?> testClass) throws InitializationError {
+        super(testClass);
+    }
+
+    @Override
+    protected InstrumentationConfiguration createClassLoaderConfig(FrameworkMethod method) {
+        return new InstrumentationConfiguration.Builder(super.createClassLoaderConfig(method))
+                .doNotAcquirePackage("com.google.monitoring")
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a dialog built by {@link CocoaDialog.Builder#buildAsync(Executor, CocoaDialogBuildCallback)} creates
+ * no views and resolves no actions on the main thread when shown, and that the hand-off is dropped once the
+ * activity is destroyed.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class BuildAsyncTest {
+
+    private static final class RecordingMetrics implements CocoaDialogMetrics {
+
+        final List<Integer> mPhases = new ArrayList<>();
+
+        @Override
+        public void onPhase(CocoaDialog dialog, int phase, long durationNanos) {
+            mPhases.add(phase);
+        }
+
+        @Override
+        public void onShown(CocoaDialog dialog, long totalNanos, int createdViewCount) {
+        }
+    }
+
+    private ActivityController<Activity> mController;
+    private Activity mActivity;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mController = Robolectric.buildActivity(Activity.class).setup();
+        mActivity = mController.get();
+        mExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void showOnlyAttachesWindow() throws Exception {
+        CocoaDialogViewPool.clear(mActivity);
+        RecordingMetrics metrics = new RecordingMetrics();
+        final AtomicReference<CocoaDialog> built = new AtomicReference<>();
+        newBuilder().setMetrics(metrics).buildAsync(mExecutor, new CocoaDialogBuildCallback() {
+            @Override
+            public void onDialogBuilt(CocoaDialog dialog) {
+                built.set(dialog);
+            }
+        });
+        awaitExecutor();
+        ShadowLooper.idleMainLooper();
+        CocoaDialog dialog = built.get();
+        assertNotNull("The dialog was not handed back", dialog);
+
+        int createdViewCount = CocoaDialogViewPool.getCreatedViewCount();
+        dialog.show();
+        assertTrue(dialog.isShowing());
+        assertEquals("Views were created on show", createdViewCount, CocoaDialogViewPool.getCreatedViewCount());
+        assertFalse("Actions were resolved on show", metrics.mPhases.contains(CocoaDialogMetrics.PHASE_RESOLVE_ACTIONS));
+        assertNotNull(DialogTestHelper.findButton(DialogTestHelper.decorView(dialog), "OK"));
+        dialog.dismiss();
+    }
+
+    @Test
+    public void syncBuildCreatesViewsOnShow() {
+        CocoaDialogViewPool.clear(mActivity);
+        RecordingMetrics metrics = new RecordingMetrics();
+        CocoaDialog dialog = newBuilder().setMetrics(metrics).build();
+        int createdViewCount = CocoaDialogViewPool.getCreatedViewCount();
+        dialog.show();
+        assertTrue(CocoaDialogViewPool.getCreatedViewCount() > createdViewCount);
+        assertTrue(metrics.mPhases.contains(CocoaDialogMetrics.PHASE_RESOLVE_ACTIONS));
+        dialog.dismiss();
+    }
+
+    @Test
+    public void droppedWhenActivityDestroyed() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        final AtomicReference<CocoaDialog> built = new AtomicReference<>();
+        newBuilder().buildAsync(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        }, new CocoaDialogBuildCallback() {
+            @Override
+            public void onDialogBuilt(CocoaDialog dialog) {
+                built.set(dialog);
+            }
+        });
+        mController.pause().stop().destroy();
+        assertEquals(1, tasks.size());
+        mExecutor.submit(tasks.get(0)).get();
+        ShadowLooper.idleMainLooper();
+        assertNull(built.get());
+    }
+
+    private CocoaDialog.Builder newBuilder() {
+        return DialogTestHelper.newAlert(mActivity, "Title for CocoaDialog")
+                .addAction(new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, null));
+    }
+
+    private void awaitExecutor() throws ExecutionException, InterruptedException {
+        mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+}
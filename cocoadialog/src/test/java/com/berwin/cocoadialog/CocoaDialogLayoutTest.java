@@ -0,0 +1,163 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.berwin.cocoadialog.utils.DimensionCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Counts the measure passes of the children of {@link CocoaDialogLayout}, checking that every child is measured
+ * exactly once for any count and orientation of the actions, except the documented case of a horizontal action with a
+ * WRAP_CONTENT width and a MATCH_PARENT height, and the widths given to the horizontal actions.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class CocoaDialogLayoutTest {
+
+    private static final int WIDTH = 300;
+    private static final int MAX_ACTIONS = 6;
+    // 按钮测试视图的固有宽度
+    private static final int INTRINSIC_WIDTH = 70;
+
+    /**
+     * A view of a fixed intrinsic size counting its measure passes.
+     */
+    private static final class CountingView extends View {
+
+        private final int mIntrinsicWidth;
+        private final int mIntrinsicHeight;
+        int mMeasureCount;
+
+        CountingView(Context context, int intrinsicWidth, int intrinsicHeight) {
+            super(context);
+            this.mIntrinsicWidth = intrinsicWidth;
+            this.mIntrinsicHeight = intrinsicHeight;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            setMeasuredDimension(resolveSize(mIntrinsicWidth, widthMeasureSpec), resolveSize(mIntrinsicHeight, heightMeasureSpec));
+        }
+    }
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @Test
+    public void horizontalActionsMeasuredOnce() {
+        for (int actionCount = 0; actionCount <= MAX_ACTIONS; actionCount++) {
+            checkMeasuredOnce(CocoaDialogLayout.HORIZONTAL, actionCount, false);
+            checkMeasuredOnce(CocoaDialogLayout.HORIZONTAL, actionCount, true);
+        }
+    }
+
+    @Test
+    public void verticalActionsMeasuredOnce() {
+        for (int actionCount = 0; actionCount <= MAX_ACTIONS; actionCount++) {
+            checkMeasuredOnce(CocoaDialogLayout.VERTICAL, actionCount, false);
+            checkMeasuredOnce(CocoaDialogLayout.VERTICAL, actionCount, true);
+        }
+    }
+
+    @Test
+    public void horizontalActionsShareRemainingWidth() {
+        CocoaDialogLayout layout = newLayout(CocoaDialogLayout.HORIZONTAL);
+        CountingView fixed = addAction(layout, 60, 40);
+        CountingView wrap = addAction(layout, ViewGroup.LayoutParams.WRAP_CONTENT, 40);
+        CountingView zero = addAction(layout, 0, 40);
+        CountingView matchParent = addAction(layout, ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        measure(layout);
+
+        assertEquals(60, fixed.getMeasuredWidth());
+        // WRAP_CONTENT的按钮保持自身宽度，不参与平分
+        assertEquals(INTRINSIC_WIDTH, wrap.getMeasuredWidth());
+        int remaining = WIDTH - 60 - INTRINSIC_WIDTH - 3 * separatorThickness(layout);
+        assertEquals(remaining - remaining / 2, zero.getMeasuredWidth());
+        assertEquals(remaining / 2, matchParent.getMeasuredWidth());
+        assertEquals(40, matchParent.getMeasuredHeight());
+        for (CountingView view : new CountingView[]{fixed, wrap, zero, matchParent}) {
+            assertEquals(1, view.mMeasureCount);
+        }
+    }
+
+    @Test
+    public void wrapContentWidthMatchParentHeightMeasuredTwice() {
+        // 唯一测量两次的情况：先按自身宽度测量，再以整行高度测量
+        CocoaDialogLayout layout = newLayout(CocoaDialogLayout.HORIZONTAL);
+        CountingView wrap = addAction(layout, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        CountingView zero = addAction(layout, 0, 40);
+        CountingView tall = addAction(layout, 60, 56);
+        measure(layout);
+
+        assertEquals(2, wrap.mMeasureCount);
+        assertEquals(INTRINSIC_WIDTH, wrap.getMeasuredWidth());
+        assertEquals(56, wrap.getMeasuredHeight());
+        assertEquals(1, zero.mMeasureCount);
+        assertEquals(1, tall.mMeasureCount);
+        assertEquals(WIDTH - INTRINSIC_WIDTH - 60 - 2 * separatorThickness(layout), zero.getMeasuredWidth());
+    }
+
+    private void checkMeasuredOnce(int orientation, int actionCount, boolean withDetachedAction) {
+        CocoaDialogLayout layout = newLayout(orientation);
+        CountingView title = new CountingView(mActivity, 120, 20);
+        layout.addView(title, new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        CountingView[] actions = new CountingView[actionCount];
+        for (int i = 0; i < actionCount; i++) {
+            // 水平排列时混合固定宽度与平分宽度的按钮
+            int width = orientation == CocoaDialogLayout.VERTICAL ? ViewGroup.LayoutParams.MATCH_PARENT : (i == 0 ? 0 : i == 1 ? 50 : ViewGroup.LayoutParams.MATCH_PARENT);
+            actions[i] = addAction(layout, width, 43);
+        }
+        CountingView detached = null;
+        if (withDetachedAction) {
+            detached = new CountingView(mActivity, 0, 50);
+            layout.addView(detached, new CocoaDialogLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 50, CocoaDialogLayout.LayoutParams.ROLE_DETACHED_ACTION));
+        }
+        measure(layout);
+
+        String configuration = (orientation == CocoaDialogLayout.VERTICAL ? "vertical" : "horizontal") + " with " + actionCount + " actions";
+        assertEquals("Title measured more than once, " + configuration, 1, title.mMeasureCount);
+        for (int i = 0; i < actionCount; i++) {
+            assertEquals("Action " + i + " measured more than once, " + configuration, 1, actions[i].mMeasureCount);
+        }
+        if (detached != null) {
+            assertEquals("Detached action measured more than once, " + configuration, 1, detached.mMeasureCount);
+        }
+    }
+
+    private CocoaDialogLayout newLayout(int orientation) {
+        CocoaDialogLayout layout = new CocoaDialogLayout(mActivity);
+        layout.setActionOrientation(orientation);
+        return layout;
+    }
+
+    private CountingView addAction(CocoaDialogLayout layout, int width, int height) {
+        CountingView view = new CountingView(mActivity, INTRINSIC_WIDTH, 40);
+        layout.addView(view, new CocoaDialogLayout.LayoutParams(width, height, CocoaDialogLayout.LayoutParams.ROLE_ACTION));
+        return view;
+    }
+
+    private static void measure(CocoaDialogLayout layout) {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.AT_MOST));
+    }
+
+    private static int separatorThickness(CocoaDialogLayout layout) {
+        return DimensionCache.get(layout.getContext()).dip2px(1);
+    }
+}
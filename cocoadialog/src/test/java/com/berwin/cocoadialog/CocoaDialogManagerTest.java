@@ -0,0 +1,198 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the order, coalescing, cancellation and timeout of the requests of {@link CocoaDialogManager} against a fake clock.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class CocoaDialogManagerTest {
+
+    private static final class FakeClock implements CocoaDialogManager.Clock {
+
+        long mNow;
+
+        @Override
+        public long uptimeMillis() {
+            return mNow;
+        }
+    }
+
+    private Activity mActivity;
+    private CocoaDialogManager mManager;
+    private final FakeClock mClock = new FakeClock();
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mManager = CocoaDialogManager.get(mActivity);
+        mManager.setClock(mClock);
+    }
+
+    @Test
+    public void showsByPriorityThenInOrder() {
+        CocoaDialogManager.Request first = enqueue(newRequest("First"));
+        CocoaDialogManager.Request low1 = enqueue(newRequest("Low 1"));
+        CocoaDialogManager.Request high = enqueue(newRequest("High").setPriority(1));
+        CocoaDialogManager.Request low2 = enqueue(newRequest("Low 2"));
+        assertShowing(first);
+        assertEquals(3, mManager.getPendingCount());
+
+        dismissShowing();
+        assertShowing(high);
+        dismissShowing();
+        assertShowing(low1);
+        dismissShowing();
+        assertShowing(low2);
+        dismissShowing();
+        assertNull(mManager.getShowingDialog());
+        assertEquals(0, mManager.getPendingCount());
+    }
+
+    @Test
+    public void coalescesSameKeyWithinWindow() {
+        CocoaDialogManager.Request shown = enqueue(newRequest("Error").setKey("error").setCoalesceWindow(1000));
+        assertShowing(shown);
+
+        // 与正在显示的请求合并
+        mClock.mNow = 500;
+        enqueue(newRequest("Error").setKey("error").setCoalesceWindow(1000));
+        assertEquals(0, mManager.getPendingCount());
+
+        // 超出时间窗口后排队
+        mClock.mNow = 1500;
+        CocoaDialogManager.Request queued = enqueue(newRequest("Error").setKey("error").setCoalesceWindow(1000));
+        assertEquals(1, mManager.getPendingCount());
+
+        // 与排队中的请求合并
+        mClock.mNow = 1600;
+        enqueue(newRequest("Error").setKey("error").setCoalesceWindow(1000));
+        assertEquals(1, mManager.getPendingCount());
+        assertFalse(queued.isCancelled());
+
+        // 超出排队中请求的时间窗口后替换它
+        mClock.mNow = 3000;
+        CocoaDialogManager.Request replacement = enqueue(newRequest("Error").setKey("error").setCoalesceWindow(1000));
+        assertEquals(1, mManager.getPendingCount());
+        assertTrue(queued.isCancelled());
+
+        dismissShowing();
+        assertShowing(replacement);
+    }
+
+    @Test
+    public void replacementKeepsPlaceInQueue() {
+        enqueue(newRequest("Shown"));
+        CocoaDialogManager.Request queued = enqueue(newRequest("Error").setKey("error").setCoalesceWindow(1000));
+        mClock.mNow = 500;
+        CocoaDialogManager.Request later = enqueue(newRequest("Later"));
+
+        // 替换排队中的旧请求后仍排在之后入队的同优先级请求前面
+        mClock.mNow = 2000;
+        CocoaDialogManager.Request replacement = enqueue(newRequest("Error").setKey("error").setCoalesceWindow(1000));
+        assertTrue(queued.isCancelled());
+        assertEquals(2, mManager.getPendingCount());
+
+        dismissShowing();
+        assertShowing(replacement);
+        dismissShowing();
+        assertShowing(later);
+    }
+
+    @Test
+    public void cancelsPendingAndShowingRequests() {
+        CocoaDialogManager.Request shown = enqueue(newRequest("Shown"));
+        CocoaDialogManager.Request pending = enqueue(newRequest("Pending"));
+        CocoaDialogManager.Request last = enqueue(newRequest("Last"));
+
+        pending.cancel();
+        assertTrue(pending.isCancelled());
+        assertNull(pending.getDialog());
+        assertEquals(1, mManager.getPendingCount());
+
+        CocoaDialog dialog = shown.getDialog();
+        shown.cancel();
+        assertFalse(dialog.isShowing());
+        assertShowing(last);
+
+        mManager.cancelAll();
+        assertFalse(last.getDialog().isShowing());
+        assertNull(mManager.getShowingDialog());
+    }
+
+    @Test
+    public void dropsTimedOutRequests() {
+        enqueue(newRequest("Shown"));
+        CocoaDialogManager.Request stale = enqueue(newRequest("Stale").setTimeout(1000));
+        CocoaDialogManager.Request fresh = enqueue(newRequest("Fresh").setTimeout(5000));
+
+        mClock.mNow = 2000;
+        dismissShowing();
+        assertTrue(stale.isCancelled());
+        assertNull(stale.getDialog());
+        assertShowing(fresh);
+    }
+
+    @Test
+    public void reshowingFinishedDialogDoesNotAdvance() {
+        CocoaDialogManager.Request first = enqueue(newRequest("First"));
+        CocoaDialogManager.Request second = enqueue(newRequest("Second"));
+        enqueue(newRequest("Third"));
+
+        dismissShowing();
+        assertShowing(second);
+        // 已结束的请求的对话框再次显示及关闭与队列无关
+        first.getDialog().show();
+        first.getDialog().dismiss();
+        assertShowing(second);
+        assertEquals(1, mManager.getPendingCount());
+    }
+
+    @Test
+    public void skipsRequestWhoseDialogIsNotShown() {
+        ActivityController<Activity> otherController = Robolectric.buildActivity(Activity.class).setup();
+        CocoaDialog.Builder orphan = new CocoaDialog.Builder(otherController.get(), CocoaDialogStyle.alert).setTitle("Orphan");
+        otherController.pause().stop().destroy();
+
+        enqueue(newRequest("Shown"));
+        CocoaDialogManager.Request skipped = enqueue(new CocoaDialogManager.Request(orphan));
+        CocoaDialogManager.Request next = enqueue(newRequest("Next"));
+        dismissShowing();
+        assertTrue(skipped.isCancelled());
+        assertShowing(next);
+    }
+
+    private CocoaDialogManager.Request enqueue(CocoaDialogManager.Request request) {
+        mManager.enqueue(request);
+        return request;
+    }
+
+    private CocoaDialogManager.Request newRequest(String title) {
+        return new CocoaDialogManager.Request(new CocoaDialog.Builder(mActivity, CocoaDialogStyle.alert).setTitle(title));
+    }
+
+    private void assertShowing(CocoaDialogManager.Request request) {
+        CocoaDialog dialog = mManager.getShowingDialog();
+        assertSame(request.getDialog(), dialog);
+        assertTrue(dialog.isShowing());
+    }
+
+    private void dismissShowing() {
+        mManager.getShowingDialog().dismiss();
+    }
+}
@@ -0,0 +1,118 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the order of the phases reported to {@link CocoaDialogMetrics} from building a {@link CocoaDialog} to its
+ * first drawn frame, for the first and a repeated show.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class CocoaDialogMetricsTest {
+
+    // onShown的记录值
+    private static final int SHOWN = -1;
+
+    private final List<Integer> mEvents = new ArrayList<>();
+    private final CocoaDialogMetrics mMetrics = new CocoaDialogMetrics() {
+        @Override
+        public void onPhase(@NonNull CocoaDialog dialog, int phase, long durationNanos) {
+            assertTrue("Negative duration of phase " + phase, durationNanos >= 0);
+            mEvents.add(phase);
+        }
+
+        @Override
+        public void onShown(@NonNull CocoaDialog dialog, long totalNanos, int createdViewCount) {
+            assertTrue(totalNanos >= 0);
+            assertTrue(createdViewCount >= 0);
+            mEvents.add(SHOWN);
+        }
+    };
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @After
+    public void tearDown() {
+        CocoaDialog.setDefaultMetrics(null);
+    }
+
+    @Test
+    public void phasesInOrder() {
+        CocoaDialog dialog = DialogTestHelper.newAlert(mActivity, "Title").setMetrics(mMetrics).build();
+        assertEvents(CocoaDialogMetrics.PHASE_BUILD);
+
+        dialog.show();
+        drawFirstFrame(dialog);
+        assertEvents(CocoaDialogMetrics.PHASE_RESOLVE_ACTIONS, CocoaDialogMetrics.PHASE_CREATE,
+                CocoaDialogMetrics.PHASE_START, CocoaDialogMetrics.PHASE_FIRST_DRAW, SHOWN);
+
+        // 再次显示时不再调用onCreate，内容视图在onStart中重新绑定
+        dialog.dismiss();
+        dialog.show();
+        drawFirstFrame(dialog);
+        assertEvents(CocoaDialogMetrics.PHASE_RESOLVE_ACTIONS, CocoaDialogMetrics.PHASE_START,
+                CocoaDialogMetrics.PHASE_FIRST_DRAW, SHOWN);
+
+        // 首帧之后的绘制不再上报
+        drawFirstFrame(dialog);
+        assertEvents();
+        dialog.dismiss();
+    }
+
+    @Test
+    public void defaultMetricsUnlessSetOnBuilder() {
+        final List<CocoaDialog> measured = new ArrayList<>();
+        CocoaDialog.setDefaultMetrics(new CocoaDialogMetrics() {
+            @Override
+            public void onPhase(@NonNull CocoaDialog dialog, int phase, long durationNanos) {
+                measured.add(dialog);
+            }
+
+            @Override
+            public void onShown(@NonNull CocoaDialog dialog, long totalNanos, int createdViewCount) {
+            }
+        });
+        CocoaDialog byDefault = DialogTestHelper.newAlert(mActivity, "Default").build();
+        assertEquals(1, measured.size());
+        assertSame(byDefault, measured.get(0));
+
+        DialogTestHelper.newAlert(mActivity, "Own").setMetrics(mMetrics).build();
+        assertEquals(1, measured.size());
+        assertEvents(CocoaDialogMetrics.PHASE_BUILD);
+    }
+
+    private void assertEvents(Integer... expected) {
+        assertEquals(Arrays.asList(expected), mEvents);
+        mEvents.clear();
+    }
+
+    private static void drawFirstFrame(CocoaDialog dialog) {
+        ShadowLooper.idleMainLooper();
+        View decorView = DialogTestHelper.decorView(dialog);
+        decorView.getViewTreeObserver().dispatchOnPreDraw();
+    }
+}
@@ -0,0 +1,218 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link CocoaDialog#update(CocoaDialogSpec)} changes only the views that differ from the new spec, and
+ * that the actions guarded by the edit text validator follow the new spec.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class CocoaDialogUpdateTest {
+
+    /**
+     * Counts the text changes of a text view.
+     */
+    private static final class TextChangeCounter implements TextWatcher {
+
+        int mChanges;
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+            mChanges++;
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+        }
+    }
+
+    private final CocoaDialogAction mCancel = new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null);
+    private final CocoaDialogAction mOk = new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, null);
+    private final CocoaDialogAction mDelete = new CocoaDialogAction("Delete", CocoaDialogActionStyle.destructive, null);
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @Test
+    public void sameSpecChangesNothing() {
+        CocoaDialog dialog = newBuilder("Title", "Message", mCancel, mOk, mDelete).build();
+        dialog.show();
+        View decorView = DialogTestHelper.decorView(dialog);
+        List<Button> buttons = actionButtons(decorView);
+        List<TextChangeCounter> counters = watchTexts(decorView, buttons);
+
+        dialog.update(newBuilder("Title", "Message", mCancel, mOk, mDelete).buildSpec());
+        assertEquals(buttons, actionButtons(decorView));
+        for (TextChangeCounter counter : counters) {
+            assertEquals("Texts set", 0, counter.mChanges);
+        }
+        dialog.dismiss();
+    }
+
+    @Test
+    public void changesOnlyTheDifferingViews() {
+        CocoaDialog dialog = newBuilder("Title", "Message", mCancel, mOk, mDelete).build();
+        dialog.show();
+        View decorView = DialogTestHelper.decorView(dialog);
+        List<Button> buttons = actionButtons(decorView);
+        List<TextChangeCounter> counters = watchTexts(decorView, buttons);
+        TextChangeCounter title = counters.get(0);
+        TextChangeCounter message = counters.get(1);
+
+        // 仅信息改变，删除一个按钮并在中间插入一个新按钮
+        CocoaDialogAction share = new CocoaDialogAction("Share", CocoaDialogActionStyle.normal, null);
+        dialog.update(newBuilder("Title", "Another message", mCancel, share, mDelete).buildSpec());
+        assertEquals(0, title.mChanges);
+        assertEquals(1, message.mChanges);
+        List<Button> updated = actionButtons(decorView);
+        assertEquals(3, updated.size());
+        // 被移除的按钮可能从复用池中取回用于新按钮，只检查保留的按钮
+        assertEquals(0, counters.get(2 + buttons.indexOf(findByText(buttons, "Delete"))).mChanges);
+        assertEquals(0, counters.get(2 + buttons.indexOf(findByText(buttons, "Cancel"))).mChanges);
+        // 3个按钮时取消按钮在最下方：Share、Delete、Cancel
+        assertEquals("Share", updated.get(0).getText().toString());
+        assertSame(findByText(buttons, "Delete"), updated.get(1));
+        assertSame(findByText(buttons, "Cancel"), updated.get(2));
+        dialog.dismiss();
+    }
+
+    @Test
+    public void guardedActionsFollowNewSpec() {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                tasks.add(command);
+            }
+        };
+        EditTextValidator validator = new EditTextValidator() {
+            @Override
+            public boolean isValid(@NonNull String[] texts) {
+                return texts[0].length() > 0;
+            }
+        };
+        CocoaDialog dialog = newBuilder("Title", "Message", mCancel, mOk, mDelete)
+                .addEditText(null)
+                .setEditTextValidator(validator, executor, 0, mOk)
+                .build();
+        dialog.show();
+        assertFalse(dialog.isActionEnabled(mOk));
+        assertTrue(dialog.isActionEnabled(mDelete));
+
+        dialog.getEditTextList().get(0).setText("text");
+        runAll(tasks);
+        assertTrue(dialog.isActionEnabled(mOk));
+
+        // 清空输入后OK禁用，之后改为由Delete受控
+        dialog.getEditTextList().get(0).setText("");
+        runAll(tasks);
+        assertFalse(dialog.isActionEnabled(mOk));
+        dialog.update(newBuilder("Title", "Message", mCancel, mOk, mDelete)
+                .addEditText(null)
+                .setEditTextValidator(validator, executor, 0, mDelete)
+                .buildSpec());
+        assertTrue("No longer guarded action still disabled", dialog.isActionEnabled(mOk));
+        assertFalse("Newly guarded action enabled before validation", dialog.isActionEnabled(mDelete));
+        assertFalse(findByText(actionButtons(DialogTestHelper.decorView(dialog)), "Delete").isEnabled());
+
+        // 更新后立即重新校验当前的输入
+        assertEquals(1, tasks.size());
+        dialog.getEditTextList().get(0).setText("text");
+        runAll(tasks);
+        assertTrue(dialog.isActionEnabled(mDelete));
+        assertTrue(dialog.isActionEnabled(mOk));
+        dialog.dismiss();
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    private CocoaDialog.Builder newBuilder(String title, String message, CocoaDialogAction... actions) {
+        CocoaDialog.Builder builder = new CocoaDialog.Builder(mActivity, CocoaDialogStyle.alert)
+                .setTitle(title)
+                .setMessage(message);
+        for (CocoaDialogAction action : actions) {
+            builder.addAction(action);
+        }
+        return builder;
+    }
+
+    /**
+     * Watch the title, the message and the given buttons, in this order.
+     */
+    private static List<TextChangeCounter> watchTexts(View decorView, List<Button> buttons) {
+        List<TextView> textViews = new ArrayList<>();
+        textViews.add((TextView) decorView.findViewById(R.id.title));
+        textViews.add((TextView) decorView.findViewById(R.id.message));
+        textViews.addAll(buttons);
+        List<TextChangeCounter> counters = new ArrayList<>();
+        for (TextView textView : textViews) {
+            TextChangeCounter counter = new TextChangeCounter();
+            textView.addTextChangedListener(counter);
+            counters.add(counter);
+        }
+        return counters;
+    }
+
+    private static List<Button> actionButtons(View decorView) {
+        CocoaDialogLayout layout = DialogTestHelper.findView(decorView, CocoaDialogLayout.class);
+        assertNotNull(layout);
+        List<Button> buttons = new ArrayList<>();
+        for (int i = 0; i < layout.getChildCount(); i++) {
+            View child = layout.getChildAt(i);
+            if (child instanceof Button && child.getTag(R.id.cocoa_dialog_action_index) != null) {
+                buttons.add((Button) child);
+            }
+        }
+        return buttons;
+    }
+
+    private static Button findByText(List<Button> buttons, String text) {
+        for (Button button : buttons) {
+            if (text.contentEquals(button.getText())) {
+                return button;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * An activity counting the layouts of the application inflated and the drawables and texts loaded through it,
+ * including the contexts of the dialogs built with it. The resources of the framework are not counted.
+ */
+public class CountingActivity extends Activity {
+
+    private static final String[] CLASS_PREFIXES = {"android.widget.", "android.webkit.", "android.app."};
+
+    private LayoutInflater mInflater;
+    private Resources mResources;
+    private int mInflationCount;
+    private final SparseIntArray mDrawableLoads = new SparseIntArray();
+    private int mTextLoadCount;
+
+    @Override
+    public Object getSystemService(String name) {
+        if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+            if (mInflater == null) {
+                mInflater = new CountingInflater((LayoutInflater) super.getSystemService(name), this);
+            }
+            return mInflater;
+        }
+        return super.getSystemService(name);
+    }
+
+    @Override
+    public Resources getResources() {
+        if (mResources == null) {
+            mResources = new CountingResources(super.getResources());
+        }
+        return mResources;
+    }
+
+    /**
+     * @return The count of the layouts of the application inflated so far.
+     */
+    public int getInflationCount() {
+        return mInflationCount;
+    }
+
+    /**
+     * @return The count of the given drawable resource loaded so far.
+     */
+    public int getDrawableLoadCount(int resId) {
+        return mDrawableLoads.get(resId);
+    }
+
+    /**
+     * @return The count of the given drawable resources loaded so far.
+     */
+    public int getDrawableLoadCount(int... resIds) {
+        int count = 0;
+        for (int resId : resIds) {
+            count += mDrawableLoads.get(resId);
+        }
+        return count;
+    }
+
+    /**
+     * @return The count of the texts of the application loaded so far.
+     */
+    public int getTextLoadCount() {
+        return mTextLoadCount;
+    }
+
+    /**
+     * Reset all the counts.
+     */
+    public void resetCounts() {
+        mInflationCount = 0;
+        mDrawableLoads.clear();
+        mTextLoadCount = 0;
+    }
+
+    private static boolean isApplicationResource(int resId) {
+        // 框架资源的包ID为0x01
+        return resId >>> 24 != 0x01;
+    }
+
+    private final class CountingInflater extends LayoutInflater {
+
+        CountingInflater(LayoutInflater original, Context newContext) {
+            super(original, newContext);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context newContext) {
+            return new CountingInflater(this, newContext);
+        }
+
+        @Override
+        public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+            if (isApplicationResource(resource)) {
+                mInflationCount++;
+            }
+            return super.inflate(resource, root, attachToRoot);
+        }
+
+        @Override
+        protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+            // 与系统的PhoneLayoutInflater一致，依次尝试各个包名前缀
+            for (String prefix : CLASS_PREFIXES) {
+                try {
+                    View view = createView(name, prefix, attrs);
+                    if (view != null) {
+                        return view;
+                    }
+                } catch (ClassNotFoundException e) {
+                    // 尝试下一个前缀
+                }
+            }
+            return super.onCreateView(name, attrs);
+        }
+    }
+
+    private final class CountingResources extends Resources {
+
+        @SuppressWarnings("deprecation")
+        CountingResources(Resources base) {
+            super(base.getAssets(), base.getDisplayMetrics(), base.getConfiguration());
+        }
+
+        @Override
+        public Drawable getDrawable(int id, Theme theme) throws NotFoundException {
+            if (isApplicationResource(id)) {
+                mDrawableLoads.put(id, mDrawableLoads.get(id) + 1);
+            }
+            return super.getDrawable(id, theme);
+        }
+
+        @Override
+        public CharSequence getText(int id) throws NotFoundException {
+            if (isApplicationResource(id)) {
+                mTextLoadCount++;
+            }
+            return super.getText(id);
+        }
+    }
+}
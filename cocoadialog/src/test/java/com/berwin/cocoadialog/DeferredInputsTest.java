@@ -0,0 +1,98 @@
+package com.berwin.cocoadialog;
+
+import android.content.Context;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that building a {@link CocoaDialog} creates no views and loads no strings, the edit texts, the progress bar
+ * and the string resources are only created when the dialog is shown.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class DeferredInputsTest {
+
+    private CountingActivity mActivity;
+    private int mEditTextCount;
+    private int mProgressBarCount;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(CountingActivity.class).setup().get();
+        CocoaDialogViewPool.clear(mActivity);
+    }
+
+    @Test
+    public void nothingCreatedUntilShow() {
+        int createdViews = CocoaDialogViewPool.getCreatedViewCount();
+        mActivity.resetCounts();
+        CocoaDialog dialog = newBuilder().build();
+
+        assertEquals("Layouts inflated", 0, mActivity.getInflationCount());
+        assertEquals("Views created", createdViews, CocoaDialogViewPool.getCreatedViewCount());
+        assertEquals("Edit texts built", 0, mEditTextCount);
+        assertEquals("Progress bars built", 0, mProgressBarCount);
+        assertEquals("Strings loaded", 0, mActivity.getTextLoadCount());
+
+        dialog.show();
+        assertTrue(mActivity.getInflationCount() > 0);
+        assertEquals(2, mEditTextCount);
+        assertEquals(1, mProgressBarCount);
+        // 标题、信息及按钮标题
+        assertTrue(mActivity.getTextLoadCount() >= 3);
+        assertEquals(2, dialog.getEditTextList().size());
+        dialog.dismiss();
+    }
+
+    @Test
+    public void editTextsBuiltOnDemandBeforeShow() {
+        CocoaDialog dialog = newBuilder().build();
+        List<EditText> editTexts = dialog.getEditTextList();
+        assertEquals(2, editTexts.size());
+        assertEquals(2, mEditTextCount);
+        assertEquals(1, mProgressBarCount);
+
+        // 显示时使用已创建的输入框及进度条，不再调用处理器
+        dialog.show();
+        assertEquals(2, mEditTextCount);
+        assertEquals(1, mProgressBarCount);
+        assertSame(editTexts.get(0), dialog.getEditTextList().get(0));
+        assertSame(editTexts.get(1), dialog.getEditTextList().get(1));
+        dialog.dismiss();
+    }
+
+    private CocoaDialog.Builder newBuilder() {
+        EditTextConfigurationHandler editTextHandler = new EditTextConfigurationHandler() {
+            @Override
+            public void onEditTextAdded(EditText editText) {
+                mEditTextCount++;
+            }
+        };
+        return new CocoaDialog.Builder(mActivity, CocoaDialogStyle.alert)
+                .setTitle(R.string.app_name)
+                .setMessage(R.string.cocoa_dialog_search_hint)
+                .addAction(R.string.app_name, CocoaDialogActionStyle.cancel, null)
+                .addEditText(editTextHandler)
+                .addEditText(editTextHandler)
+                .addProgressBar(new ProgressBarBuildHandler() {
+                    @Override
+                    public ProgressBar build(Context context) {
+                        mProgressBarCount++;
+                        return DialogTestHelper.HORIZONTAL_PROGRESS_BAR.build(context);
+                    }
+                });
+    }
+}
@@ -0,0 +1,110 @@
+package com.berwin.cocoadialog;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.ProgressBar;
+
+/**
+ * Fixtures and view lookups shared by the tests.
+ */
+final class DialogTestHelper {
+
+    /**
+     * Builds a horizontal progress bar.
+     */
+    static final ProgressBarBuildHandler HORIZONTAL_PROGRESS_BAR = new ProgressBarBuildHandler() {
+        @Override
+        public ProgressBar build(Context context) {
+            return new ProgressBar(context, null, android.R.attr.progressBarStyleHorizontal);
+        }
+    };
+
+    private DialogTestHelper() {
+    }
+
+    /**
+     * A builder of an alert with a title, a message and a cancel action.
+     */
+    static CocoaDialog.Builder newAlert(Context context, String title) {
+        return new CocoaDialog.Builder(context, CocoaDialogStyle.alert)
+                .setTitle(title)
+                .setMessage("This is a message.")
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+    }
+
+    /**
+     * A builder of an alert with a title, a message and a horizontal progress bar.
+     */
+    static CocoaDialog.Builder newProgressAlert(Context context, String title, String message) {
+        return new CocoaDialog.Builder(context, CocoaDialogStyle.alert)
+                .setTitle(title)
+                .setMessage(message)
+                .addProgressBar(HORIZONTAL_PROGRESS_BAR);
+    }
+
+    /**
+     * @return The view hierarchy of the window of the given dialog.
+     */
+    static View decorView(CocoaDialog dialog) {
+        return dialog.getWindow().getDecorView();
+    }
+
+    /**
+     * Find the first button with the given text in the hierarchy, depth first.
+     */
+    static Button findButton(View view, String text) {
+        if (view instanceof Button && text.contentEquals(((Button) view).getText())) {
+            return (Button) view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                Button button = findButton(group.getChildAt(i), text);
+                if (button != null) {
+                    return button;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the first action button of a dialog in the hierarchy, depth first.
+     */
+    static Button findActionButton(View view) {
+        if (view instanceof Button && view.getTag(R.id.cocoa_dialog_action_index) != null) {
+            return (Button) view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                Button button = findActionButton(group.getChildAt(i));
+                if (button != null) {
+                    return button;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the first view of the given type in the hierarchy, depth first.
+     */
+    static <T extends View> T findView(View view, Class<T> type) {
+        if (type.isInstance(view)) {
+            return type.cast(view);
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                T found = findView(group.getChildAt(i), type);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,195 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.widget.Button;
+import android.widget.EditText;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the debounce, the dropping of stale validations and the enabling of the guarded actions of
+ * {@link CocoaDialog.Builder#setEditTextValidator}, running the validations of a queued executor by hand.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class EditTextValidationTest {
+
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    /**
+     * An executor whose tasks run only when asked.
+     */
+    private static final class QueuedExecutor implements Executor {
+
+        final Queue<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private final QueuedExecutor mExecutor = new QueuedExecutor();
+    // 每次调用校验器时收到的第一个输入框的文本
+    private final List<String> mValidated = new ArrayList<>();
+    // 校验期间执行，用于模拟校验过程中的输入
+    private Runnable mDuringValidation;
+    private final CocoaDialogAction mOk = new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, null);
+    private CocoaDialog mDialog;
+    private EditText mEditText;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mDialog = new CocoaDialog.Builder(activity, CocoaDialogStyle.alert)
+                .setTitle("Sign in")
+                .addEditText(null)
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null))
+                .addAction(mOk)
+                .setEditTextValidator(new EditTextValidator() {
+                    @Override
+                    public boolean isValid(@NonNull String[] texts) {
+                        mValidated.add(texts[0]);
+                        if (mDuringValidation != null) {
+                            mDuringValidation.run();
+                        }
+                        return texts[0].length() >= 3;
+                    }
+                }, mExecutor, DEBOUNCE_MILLIS, mOk)
+                .build();
+        mEditText = mDialog.getEditTextList().get(0);
+    }
+
+    @Test
+    public void guardedActionEnabledByResult() {
+        assertFalse("Guarded action enabled before validation", mDialog.isActionEnabled(mOk));
+        mDialog.show();
+        Button button = DialogTestHelper.findButton(DialogTestHelper.decorView(mDialog), "OK");
+        assertFalse(button.isEnabled());
+
+        type("abc");
+        assertTrue(mDialog.isActionEnabled(mOk));
+        assertTrue(button.isEnabled());
+
+        type("ab");
+        assertFalse(mDialog.isActionEnabled(mOk));
+        assertFalse(button.isEnabled());
+        mDialog.dismiss();
+    }
+
+    @Test
+    public void debouncesInput() {
+        showAndValidateInitialText();
+        mEditText.setText("a");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS / 2, TimeUnit.MILLISECONDS);
+        mEditText.setText("ab");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS / 2, TimeUnit.MILLISECONDS);
+        mEditText.setText("abc");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS - 1, TimeUnit.MILLISECONDS);
+        assertTrue("Validated before the input paused", mExecutor.mTasks.isEmpty());
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+        assertEquals("Only the last input is validated", Collections.singletonList("abc"), mValidated);
+        assertTrue(mDialog.isActionEnabled(mOk));
+    }
+
+    @Test
+    public void skipsValidationSupersededBeforeItRuns() {
+        showAndValidateInitialText();
+        mEditText.setText("abc");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, mExecutor.mTasks.size());
+
+        // 排队中的校验被新输入取代，不再调用校验器
+        mEditText.setText("ab");
+        mExecutor.runAll();
+        assertTrue(mValidated.isEmpty());
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+        assertEquals(Collections.singletonList("ab"), mValidated);
+        assertFalse(mDialog.isActionEnabled(mOk));
+    }
+
+    @Test
+    public void dropsResultOfValidationSupersededWhileRunning() {
+        showAndValidateInitialText();
+        mEditText.setText("abc");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        // 校验进行中输入变为无效文本，有效的结果被丢弃
+        mDuringValidation = new Runnable() {
+            @Override
+            public void run() {
+                mDuringValidation = null;
+                mEditText.setText("a");
+            }
+        };
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+        assertEquals(Collections.singletonList("abc"), mValidated);
+        assertFalse("Stale result applied", mDialog.isActionEnabled(mOk));
+    }
+
+    @Test
+    public void stopsWatchingWhenDismissed() {
+        showAndValidateInitialText();
+        mDialog.dismiss();
+        mEditText.setText("abc");
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue("Validated after dismiss", mExecutor.mTasks.isEmpty());
+
+        // 再次显示时重新监听并立即校验当前文本
+        mDialog.show();
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+        assertEquals(Collections.singletonList("abc"), mValidated);
+        assertTrue(mDialog.isActionEnabled(mOk));
+        mDialog.dismiss();
+    }
+
+    /**
+     * Show the dialog and run the validation of the empty text started by the show.
+     */
+    private void showAndValidateInitialText() {
+        mDialog.show();
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+        assertEquals(Collections.singletonList(""), mValidated);
+        mValidated.clear();
+    }
+
+    private void type(String text) {
+        mEditText.setText(text);
+        ShadowLooper.idleMainLooper(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mExecutor.runAll();
+        ShadowLooper.idleMainLooper();
+    }
+}
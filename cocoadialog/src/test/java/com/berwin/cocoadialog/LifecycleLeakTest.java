@@ -0,0 +1,109 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDialog;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Destroys an activity while a dialog is showing, with a progress binding still held by a worker, and checks that the
+ * dialog is dismissed and the activity can be collected.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class LifecycleLeakTest {
+
+    private static final int STREAM_SIZE = 4096;
+
+    // 模拟仍在后台传输的任务所持有的流
+    private InputStream mWorkerStream;
+
+    @After
+    public void tearDown() throws IOException {
+        if (mWorkerStream != null) {
+            mWorkerStream.close();
+        }
+    }
+
+    @Test
+    public void activityCollectableAfterDestroyWhileShowing() throws InterruptedException, IOException {
+        WeakReference<Activity> reference = showAndDestroy(false);
+        assertCollected(reference);
+    }
+
+    @Test
+    public void activityCollectableAfterDestroyWhileSharingWindow() throws InterruptedException, IOException {
+        WeakReference<Activity> reference = showAndDestroy(true);
+        assertCollected(reference);
+    }
+
+    @Test
+    public void showAfterDestroyIsIgnored() {
+        ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).setup();
+        Activity activity = controller.get();
+        CocoaDialog dialog = new CocoaDialog.Builder(activity, CocoaDialogStyle.alert)
+                .setTitle("Late")
+                .build();
+        controller.pause().stop().destroy();
+        dialog.show();
+        assertFalse(dialog.isShowing());
+        assertTrue(CocoaDialogLeakCheck.findRetainers(activity).isEmpty());
+    }
+
+    /**
+     * Show the dialogs and destroy their activity, the activity is only referenced by the local variables of this method.
+     */
+    private WeakReference<Activity> showAndDestroy(boolean sharedWindow) {
+        ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).setup();
+        final Activity activity = controller.get();
+        CocoaDialog dialog = DialogTestHelper.newProgressAlert(activity, "Download", "Downloading")
+                .setSharedWindow(sharedWindow)
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, new CocoaDialogAction.OnClickListener() {
+                    @Override
+                    public void onClick(CocoaDialog dialog) {
+                        // 点击回调捕获了Activity
+                        activity.finish();
+                    }
+                }))
+                .build();
+        dialog.show();
+        assertTrue(dialog.isShowing());
+        TransferProgress progress = TransferProgress.bind(dialog, STREAM_SIZE);
+        mWorkerStream = progress.wrap(new ByteArrayInputStream(new byte[STREAM_SIZE]));
+
+        controller.pause().stop().destroy();
+        ShadowLooper.idleMainLooper();
+        assertFalse(dialog.isShowing());
+        assertTrue(CocoaDialogLeakCheck.findRetainers(activity).isEmpty());
+        return new WeakReference<>(activity);
+    }
+
+    private void assertCollected(WeakReference<Activity> reference) throws InterruptedException, IOException {
+        // ShadowDialog自身会记录显示过的对话框，与本库无关
+        ShadowDialog.reset();
+        assertTrue("The destroyed activity is still reachable", CocoaDialogLeakCheck.awaitCollected(reference, 5000));
+        // 与对话框断开后，后台任务仍可继续读取
+        byte[] buffer = new byte[STREAM_SIZE];
+        int total = 0;
+        for (int count = mWorkerStream.read(buffer); count >= 0; count = mWorkerStream.read(buffer)) {
+            total += count;
+        }
+        assertEquals(STREAM_SIZE, total);
+    }
+}
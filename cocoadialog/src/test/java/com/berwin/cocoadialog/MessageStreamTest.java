@@ -0,0 +1,102 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streams 100,000 lines into the message of a {@link CocoaDialog}, checking that only the retained lines are kept and
+ * that each frame edits the message text at most twice, one append and one delete, however many lines it brings.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class MessageStreamTest {
+
+    private static final int MAX_LINES = 500;
+    private static final int TOTAL_LINES = 100000;
+    // 交替使用多于及少于保留行数的批次，分别经过替换及追加加删除的路径
+    private static final int[] BURSTS = {1200, 137, 499, 500, 1};
+
+    /**
+     * Counts the edits of a text.
+     */
+    private static final class EditCounter implements TextWatcher {
+
+        int mEdits;
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+            mEdits++;
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+        }
+    }
+
+    @Test
+    public void retainsLastLinesWithBoundedEditsPerFrame() throws InterruptedException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        final CocoaDialog dialog = new CocoaDialog.Builder(activity, CocoaDialogStyle.alert)
+                .setTitle("Log")
+                .setMessage("line -1")
+                .setMessageStreaming(MAX_LINES, false)
+                .build();
+        dialog.show();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        TextView messageText = DialogTestHelper.decorView(dialog).findViewById(R.id.message);
+        EditCounter counter = new EditCounter();
+        messageText.addTextChangedListener(counter);
+
+        int appended = 0;
+        for (int burst = 0; appended < TOTAL_LINES; burst++) {
+            final int from = appended;
+            final int to = Math.min(TOTAL_LINES, from + BURSTS[burst % BURSTS.length]);
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = from; i < to; i++) {
+                        dialog.appendMessageLine("line " + i);
+                    }
+                }
+            });
+            producer.start();
+            producer.join();
+            appended = to;
+
+            counter.mEdits = 0;
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            assertTrue(counter.mEdits + " edits for a frame of " + (to - from) + " lines", counter.mEdits >= 1 && counter.mEdits <= 2);
+            assertLastLines(messageText.getText(), appended);
+        }
+        dialog.dismiss();
+    }
+
+    /**
+     * Assert that the text holds exactly the last retained lines of those appended so far.
+     */
+    private static void assertLastLines(CharSequence text, int appended) {
+        // 初始消息为第-1行
+        int first = Math.max(-1, appended - MAX_LINES);
+        String[] lines = text.toString().split("\n", -1);
+        assertEquals("Lines retained", Math.min(MAX_LINES, appended + 1), lines.length);
+        assertEquals("line " + first, lines[0]);
+        assertEquals("line " + (appended - 1), lines[lines.length - 1]);
+    }
+}
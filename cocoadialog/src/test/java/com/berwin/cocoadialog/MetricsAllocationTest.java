@@ -0,0 +1,83 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that the measuring hooks of {@link CocoaDialog} allocate nothing when no {@link CocoaDialogMetrics} is
+ * registered, from showing the dialog to its first drawn frame.
+ */
+@RunWith(AllocationTestRunner.class)
+@Config(sdk = 26)
+public class MetricsAllocationTest {
+
+    // 插入了测量代码的方法
+    private static final String[] HOOKS = {
+            "show", "onCreate", "onStart", "onWindowHostStart", "bindContent", "reportPhase", "watchFirstDraw"
+    };
+
+    private Activity mActivity;
+    private AllocationCounter mCounter;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        CocoaDialog.setDefaultMetrics(null);
+        // 预热复用池及缓存，只留下钩子本身的开销
+        CocoaDialog warmup = DialogTestHelper.newAlert(mActivity, "Warm-up").build();
+        warmup.show();
+        warmup.dismiss();
+        mCounter = new AllocationCounter(true).register();
+    }
+
+    @After
+    public void tearDown() {
+        mCounter.close();
+    }
+
+    @Test
+    public void disabledHooksAllocateNothing() {
+        List<String> sites = showAndDraw(DialogTestHelper.newAlert(mActivity, "Title"));
+        assertEquals("Allocated at " + sites, Collections.<String>emptyList(), sites);
+    }
+
+    @Test
+    public void enabledHooksAreRecorded() {
+        // 对照组：注册监听后钩子中的分配能被检测到，避免上面的测试总是通过
+        List<String> sites = showAndDraw(DialogTestHelper.newAlert(mActivity, "Title").setMetrics(new CocoaDialogMetrics() {
+            @Override
+            public void onPhase(@NonNull CocoaDialog dialog, int phase, long durationNanos) {
+            }
+
+            @Override
+            public void onShown(@NonNull CocoaDialog dialog, long totalNanos, int createdViewCount) {
+            }
+        }));
+        assertFalse(sites.isEmpty());
+    }
+
+    private List<String> showAndDraw(CocoaDialog.Builder builder) {
+        mCounter.start();
+        CocoaDialog dialog = builder.build();
+        dialog.show();
+        ShadowLooper.idleMainLooper();
+        DialogTestHelper.decorView(dialog).getViewTreeObserver().dispatchOnPreDraw();
+        mCounter.stop();
+        dialog.dismiss();
+        return mCounter.librarySitesIn("CocoaDialog", HOOKS);
+    }
+}
@@ -0,0 +1,79 @@
+package com.berwin.cocoadialog;
+
+import android.os.Looper;
+
+import com.berwin.cocoadialog.utils.DrawableCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link CocoaDialog#prewarm} does nothing until the main looper is idle, and that once its idle passes
+ * have run, showing the first dialog of each prewarmed style inflates no layout, creates no view and loads no
+ * background drawable.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class PrewarmTest {
+
+    private static final int[] BACKGROUNDS = {
+            R.drawable.cocoa_dialog_corner_radius,
+            R.drawable.cocoa_dialog_top_radius,
+            R.drawable.cocoa_dialog_bottom_radius,
+            R.drawable.cocoa_dialog_bottom_left_radius,
+            R.drawable.cocoa_dialog_bottom_right_radius
+    };
+
+    private CountingActivity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(CountingActivity.class).setup().get();
+        DrawableCache.invalidate();
+        CocoaDialogViewPool.clear(mActivity);
+        mActivity.resetCounts();
+    }
+
+    @Test
+    public void firstShowAfterPrewarmDoesNoWork() {
+        CocoaDialogPrewarmer prewarmer = CocoaDialogPrewarmer.start(mActivity, CocoaDialogStyle.alert, CocoaDialogStyle.actionSheet);
+        Looper.myQueue().removeIdleHandler(prewarmer);
+
+        // 主线程空闲之前不做任何工作
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals("Layouts inflated before idle", 0, mActivity.getInflationCount());
+        assertEquals("Backgrounds loaded before idle", 0, mActivity.getDrawableLoadCount(BACKGROUNDS));
+
+        int passes = 1;
+        while (prewarmer.queueIdle()) {
+            passes++;
+        }
+        assertTrue("Prewarmed in " + passes + " idle passes", passes > 1);
+        assertEquals("Layouts inflated while prewarming", 2, mActivity.getInflationCount());
+        assertTrue(mActivity.getDrawableLoadCount(BACKGROUNDS) > 0);
+
+        for (CocoaDialogStyle style : new CocoaDialogStyle[]{CocoaDialogStyle.alert, CocoaDialogStyle.actionSheet}) {
+            mActivity.resetCounts();
+            int createdViews = CocoaDialogViewPool.getCreatedViewCount();
+            CocoaDialog dialog = new CocoaDialog.Builder(mActivity, style)
+                    .setTitle("Title for CocoaDialog")
+                    .setMessage("This is a message.")
+                    .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null))
+                    .addAction(new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, null))
+                    .build();
+            dialog.show();
+            assertEquals(style + ": layouts inflated", 0, mActivity.getInflationCount());
+            assertEquals(style + ": views created", createdViews, CocoaDialogViewPool.getCreatedViewCount());
+            assertEquals(style + ": backgrounds loaded", 0, mActivity.getDrawableLoadCount(BACKGROUNDS));
+            dialog.dismiss();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.content.Context;
+import android.widget.ProgressBar;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Calls {@link CocoaDialog#setProgress(int)} from many threads at once, checking that the updates of a frame are
+ * coalesced into at most one update of the progress bar and that the last value set is the one shown.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ProgressStressTest {
+
+    private static final int PRODUCERS = 16;
+    private static final int UPDATES = 5000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * A progress bar counting the updates applied to it.
+     */
+    private static final class CountingProgressBar extends ProgressBar {
+
+        int mUpdateCount;
+
+        CountingProgressBar(Context context) {
+            super(context, null, android.R.attr.progressBarStyleHorizontal);
+        }
+
+        @Override
+        public synchronized void setProgress(int progress) {
+            mUpdateCount++;
+            super.setProgress(progress);
+        }
+    }
+
+    private CountingProgressBar mProgressBar;
+
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        final CocoaDialog dialog = new CocoaDialog.Builder(activity, CocoaDialogStyle.alert)
+                .setTitle("Upload")
+                .addProgressBar(new ProgressBarBuildHandler() {
+                    @Override
+                    public ProgressBar build(Context context) {
+                        mProgressBar = new CountingProgressBar(context);
+                        return mProgressBar;
+                    }
+                })
+                .build();
+        dialog.show();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            mProgressBar.mUpdateCount = 0;
+            runProducers(dialog);
+            // 所有生产者结束后再设置最终值，它必须是显示出的值
+            final int expected = 40 + round;
+            Thread last = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    dialog.setProgress(expected);
+                }
+            });
+            last.start();
+            last.join();
+
+            // 一帧之内的所有更新只向主线程投递一次
+            assertTrue("Pending main thread tasks: " + Robolectric.getForegroundThreadScheduler().size(),
+                    Robolectric.getForegroundThreadScheduler().size() <= 1);
+            assertEquals(expected, dialog.getProgress());
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            assertEquals("Progress bar updates in one frame", 1, mProgressBar.mUpdateCount);
+            assertEquals(expected, mProgressBar.getProgress());
+        }
+        dialog.dismiss();
+    }
+
+    private static void runProducers(final CocoaDialog dialog) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>(PRODUCERS);
+        for (int i = 0; i < PRODUCERS; i++) {
+            final int offset = i;
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int update = 0; update < UPDATES; update++) {
+                        dialog.setProgress((update + offset) % 100);
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+    }
+}
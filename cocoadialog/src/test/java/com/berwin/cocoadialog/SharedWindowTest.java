@@ -0,0 +1,142 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.widget.Button;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDialog;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the windows added by a chained flow of confirm, progress and result dialogs, with and without
+ * {@link CocoaDialog.Builder#setSharedWindow(boolean)}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class SharedWindowTest {
+
+    private Activity mActivity;
+    private CocoaDialog mProgressDialog;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @Test
+    public void chainedFlowAddsOneSharedWindow() {
+        runChainedFlow(true);
+        List<Dialog> shownDialogs = ShadowDialog.getShownDialogs();
+        assertEquals(1, shownDialogs.size());
+        assertTrue(shownDialogs.get(0) instanceof CocoaDialogWindowHost);
+    }
+
+    @Test
+    public void chainedFlowAddsOneWindowPerDialogByDefault() {
+        runChainedFlow(false);
+        assertEquals(3, ShadowDialog.getShownDialogs().size());
+    }
+
+    @Test
+    public void sharedWindowIsShownAgainAfterFlow() {
+        runChainedFlow(true);
+        // 最后一个对话框关闭后窗口仅被隐藏
+        ShadowLooper.idleMainLooper();
+        CocoaDialog dialog = newAlert("Again", true).build();
+        dialog.show();
+        List<Dialog> shownDialogs = ShadowDialog.getShownDialogs();
+        assertSame(shownDialogs.get(0), shownDialogs.get(shownDialogs.size() - 1));
+        assertTrue(dialog.isShowing());
+    }
+
+    @Test
+    public void cancelListenerFiresOnEachShow() {
+        final int[] cancels = new int[1];
+        CocoaDialog dialog = newAlert("Cancelable", true).build();
+        dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+                cancels[0]++;
+            }
+        });
+        dialog.show();
+        dialog.cancel();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertFalse(dialog.isShowing());
+        assertEquals(1, cancels[0]);
+
+        // 共享窗口中再次显示后取消仍应通知
+        dialog.show();
+        dialog.cancel();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertFalse(dialog.isShowing());
+        assertEquals(2, cancels[0]);
+
+        // 同一次显示中只通知一次
+        dialog.show();
+        dialog.cancel();
+        dialog.cancel();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(3, cancels[0]);
+    }
+
+    @Test
+    public void actionSheetFallsBackToItsOwnWindow() {
+        newAlert("Alert", true).build().show();
+        CocoaDialog actionSheet = new CocoaDialog.Builder(mActivity, CocoaDialogStyle.actionSheet)
+                .setSharedWindow(true)
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null))
+                .build();
+        actionSheet.show();
+        List<Dialog> shownDialogs = ShadowDialog.getShownDialogs();
+        assertEquals(2, shownDialogs.size());
+        assertSame(actionSheet, shownDialogs.get(1));
+    }
+
+    private void runChainedFlow(final boolean sharedWindow) {
+        CocoaDialog confirmDialog = newAlert("Confirm", sharedWindow)
+                .addAction(new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, new CocoaDialogAction.OnClickListener() {
+                    @Override
+                    public void onClick(CocoaDialog dialog) {
+                        mProgressDialog = newAlert("Progress", sharedWindow).build();
+                        mProgressDialog.show();
+                    }
+                }))
+                .build();
+        confirmDialog.show();
+        Button okButton = DialogTestHelper.findButton(ShadowDialog.getLatestDialog().getWindow().getDecorView(), "OK");
+        assertNotNull("No OK button found", okButton);
+        okButton.performClick();
+        assertFalse(confirmDialog.isShowing());
+        assertNotNull(mProgressDialog);
+        assertTrue(mProgressDialog.isShowing());
+
+        CocoaDialog resultDialog = newAlert("Result", sharedWindow).build();
+        mProgressDialog.dismiss();
+        resultDialog.show();
+        assertFalse(mProgressDialog.isShowing());
+        assertTrue(resultDialog.isShowing());
+        resultDialog.dismiss();
+        assertFalse(resultDialog.isShowing());
+    }
+
+    private CocoaDialog.Builder newAlert(String title, boolean sharedWindow) {
+        return DialogTestHelper.newAlert(mActivity, title).setSharedWindow(sharedWindow);
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Shows one {@link CocoaDialogSpec} many times, checking that every dialog is laid out identically and that neither the
+ * spec nor the builder it came from is changed.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class SpecReuseTest {
+
+    private static final int SHOWS = 1000;
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @Test
+    public void alertShownManyTimes() {
+        // 3个按钮时取消按钮移到最下方
+        check(newBuilder(CocoaDialogStyle.alert, 3));
+    }
+
+    @Test
+    public void horizontalAlertShownManyTimes() {
+        check(newBuilder(CocoaDialogStyle.alert, 2));
+    }
+
+    @Test
+    public void actionSheetShownManyTimes() {
+        // 取消按钮单独放在面板下方
+        check(newBuilder(CocoaDialogStyle.actionSheet, 4));
+    }
+
+    @Test
+    public void actionsAreUnmodifiable() {
+        CocoaDialogSpec spec = newBuilder(CocoaDialogStyle.actionSheet, 3).buildSpec();
+        try {
+            spec.getActions().add(new CocoaDialogAction("Other", CocoaDialogActionStyle.normal, null));
+            fail("The actions of a spec can be added to");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            spec.actions.remove(0);
+            fail("The actions of a spec can be removed");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    private void check(CocoaDialog.Builder builder) {
+        List<CocoaDialogAction> builderActions = new ArrayList<>(builder.actionList);
+        CocoaDialogSpec spec = builder.buildSpec();
+        String specSignature = signature(spec);
+        assertEquals("The builder was changed", builderActions, builder.actionList);
+
+        String layoutSignature = null;
+        for (int i = 0; i < SHOWS; i++) {
+            CocoaDialog dialog = spec.build(mActivity);
+            dialog.show();
+            CocoaDialogLayout layout = DialogTestHelper.findView(DialogTestHelper.decorView(dialog), CocoaDialogLayout.class);
+            assertNotNull(layout);
+            layout.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.AT_MOST));
+            layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+            StringBuilder signature = new StringBuilder();
+            appendSignature(signature, layout);
+            if (layoutSignature == null) {
+                layoutSignature = signature.toString();
+            }
+            assertEquals("Layout of show " + i, layoutSignature, signature.toString());
+            dialog.dismiss();
+        }
+        assertEquals("The spec was changed", specSignature, signature(spec));
+        assertEquals("The builder was changed", builderActions, builder.actionList);
+    }
+
+    private static String signature(CocoaDialogSpec spec) {
+        int[] backgrounds = new int[spec.actions.size()];
+        for (int i = 0; i < backgrounds.length; i++) {
+            backgrounds[i] = spec.getActionBackground(i);
+        }
+        return spec.getStyle() + "|" + spec.getTitle() + "|" + spec.getMessage() + "|" + spec.headerHidden + "|"
+                + spec.actionOrientation + "|" + spec.actions + "|" + spec.detachedAction + "|" + Arrays.toString(backgrounds);
+    }
+
+    /**
+     * Append the type, visibility, bounds and text of the view and its descendants.
+     */
+    private static void appendSignature(StringBuilder signature, View view) {
+        signature.append(view.getClass().getSimpleName())
+                .append('[').append(view.getVisibility())
+                .append(' ').append(view.getLeft()).append(',').append(view.getTop())
+                .append(',').append(view.getRight()).append(',').append(view.getBottom());
+        if (view instanceof TextView) {
+            signature.append(" \"").append(((TextView) view).getText()).append('"');
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                signature.append(' ');
+                appendSignature(signature, group.getChildAt(i));
+            }
+        }
+        signature.append(']');
+    }
+
+    private CocoaDialog.Builder newBuilder(CocoaDialogStyle style, int actionCount) {
+        CocoaDialog.Builder builder = new CocoaDialog.Builder(mActivity, style)
+                .setTitle("Title for CocoaDialog")
+                .setMessage("This is a message.")
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+        for (int i = 1; i < actionCount; i++) {
+            builder.addAction(new CocoaDialogAction("Action " + i, CocoaDialogActionStyle.normal, null));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,121 @@
+package com.berwin.cocoadialog;
+
+import android.app.Activity;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streams a large local file through the wrappers of {@link TransferProgress}, checking the counted bytes, the progress
+ * and the status shown by the dialog.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class TransferProgressTest {
+
+    private static final int FILE_SIZE = 32 * 1024 * 1024 + 123;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private File mFile;
+    private CocoaDialog mDialog;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("transfer", ".bin");
+        byte[] buffer = new byte[BUFFER_SIZE];
+        new Random(42).nextBytes(buffer);
+        try (OutputStream out = new FileOutputStream(mFile)) {
+            for (int remaining = FILE_SIZE; remaining > 0; remaining -= buffer.length) {
+                out.write(buffer, 0, Math.min(remaining, buffer.length));
+            }
+        }
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mDialog = DialogTestHelper.newProgressAlert(activity, "Download", "Downloading").build();
+        mDialog.show();
+    }
+
+    @After
+    public void tearDown() {
+        mDialog.dismiss();
+        assertTrue(mFile.delete());
+    }
+
+    @Test
+    public void inputStream() throws IOException {
+        TransferProgress progress = TransferProgress.bind(mDialog, FILE_SIZE);
+        try (InputStream in = progress.wrap(new FileInputStream(mFile))) {
+            assertEquals(FILE_SIZE, drain(in));
+        }
+        assertFinished(progress);
+    }
+
+    @Test
+    public void outputStream() throws IOException {
+        TransferProgress progress = TransferProgress.bind(mDialog, FILE_SIZE);
+        File copy = File.createTempFile("transfer", ".copy");
+        try (InputStream in = new FileInputStream(mFile); OutputStream out = progress.wrap(new FileOutputStream(copy))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                out.write(buffer, 0, count);
+            }
+            out.write(0);
+        }
+        assertEquals(FILE_SIZE + 1, copy.length());
+        assertTrue(copy.delete());
+        assertEquals(FILE_SIZE + 1, progress.getTransferredBytes());
+    }
+
+    @Test
+    public void channel() throws IOException {
+        TransferProgress progress = TransferProgress.bind(mDialog, FILE_SIZE);
+        try (ReadableByteChannel channel = progress.wrap(new FileInputStream(mFile).getChannel())) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long total = 0;
+            for (int count = channel.read(buffer); count >= 0; count = channel.read(buffer)) {
+                total += count;
+                buffer.clear();
+            }
+            assertEquals(FILE_SIZE, total);
+        }
+        assertFinished(progress);
+    }
+
+    private void assertFinished(TransferProgress progress) {
+        assertEquals(FILE_SIZE, progress.getTransferredBytes());
+        // 依次执行TransferProgress及对话框的帧更新
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(100, mDialog.getProgress());
+        TextView messageText = mDialog.getWindow().getDecorView().findViewById(R.id.message);
+        assertTrue(messageText.getText().toString(), messageText.getText().toString().startsWith("Downloading\n"));
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+            total += count;
+        }
+        return total;
+    }
+}
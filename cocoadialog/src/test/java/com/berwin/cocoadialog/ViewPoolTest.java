@@ -0,0 +1,120 @@
+package com.berwin.cocoadialog;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the layout inflations of {@link CocoaDialog}s shown repeatedly in one activity, checking that
+ * {@link CocoaDialogViewPool} makes the second show of a style inflate nothing, and that the buttons of a virtualized
+ * action sheet are given back to the pool.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class ViewPoolTest {
+
+    private ActivityController<CountingActivity> mController;
+    private CountingActivity mActivity;
+
+    @Before
+    public void setUp() {
+        mController = Robolectric.buildActivity(CountingActivity.class).setup();
+        mActivity = mController.get();
+    }
+
+    @Test
+    public void secondAlertInflatesNothing() {
+        checkSecondShowInflatesNothing(CocoaDialogStyle.alert);
+    }
+
+    @Test
+    public void secondActionSheetInflatesNothing() {
+        checkSecondShowInflatesNothing(CocoaDialogStyle.actionSheet);
+    }
+
+    @Test
+    public void poolEvictedWithActivity() {
+        CocoaDialog dialog = newBuilder(CocoaDialogStyle.alert, "First").build();
+        dialog.show();
+        dialog.dismiss();
+        assertTrue(CocoaDialogViewPool.hasPool(mActivity));
+        mController.pause().stop().destroy();
+        assertFalse(CocoaDialogViewPool.hasPool(mActivity));
+    }
+
+    @Test
+    public void virtualizedActionSheetGivesButtonsBack() {
+        // 容量足以容纳列表创建的全部按钮
+        CocoaDialogViewPool.setButtonCapacity(64);
+        try {
+            CocoaDialogViewPool.clear(mActivity);
+            CocoaDialog.Builder builder = new CocoaDialog.Builder(mActivity, CocoaDialogStyle.actionSheet)
+                    .setVirtualized(true)
+                    .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+            for (int i = 0; i < 1000; i++) {
+                builder.addAction(new CocoaDialogAction("Action " + i, CocoaDialogActionStyle.normal, null));
+            }
+            int createdViewCount = CocoaDialogViewPool.getCreatedViewCount();
+            CocoaDialog first = builder.build();
+            first.show();
+            layout(first);
+            assertTrue("The list created no buttons", CocoaDialogViewPool.getCreatedViewCount() > createdViewCount);
+            first.dismiss();
+
+            // 列表的可见按钮及废弃按钮都已归还，再次显示时全部取自复用池
+            createdViewCount = CocoaDialogViewPool.getCreatedViewCount();
+            CocoaDialog second = builder.build();
+            second.show();
+            layout(second);
+            assertEquals("The second show created views", createdViewCount, CocoaDialogViewPool.getCreatedViewCount());
+            second.dismiss();
+        } finally {
+            // 恢复默认容量
+            CocoaDialogViewPool.setButtonCapacity(8);
+        }
+    }
+
+    private static void layout(CocoaDialog dialog) {
+        View decorView = dialog.getWindow().getDecorView();
+        decorView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.AT_MOST));
+        decorView.layout(0, 0, decorView.getMeasuredWidth(), decorView.getMeasuredHeight());
+    }
+
+    private void checkSecondShowInflatesNothing(CocoaDialogStyle style) {
+        CocoaDialogViewPool.clear(mActivity);
+        mActivity.resetCounts();
+        CocoaDialog first = newBuilder(style, "First").build();
+        first.show();
+        first.dismiss();
+        assertEquals("The first show should inflate the layout once", 1, mActivity.getInflationCount());
+
+        // 标题不同但样式相同的对话框同样复用
+        mActivity.resetCounts();
+        int createdViewCount = CocoaDialogViewPool.getCreatedViewCount();
+        CocoaDialog second = newBuilder(style, "Second").build();
+        second.show();
+        assertTrue(second.isShowing());
+        assertEquals("The second show inflated a layout", 0, mActivity.getInflationCount());
+        assertEquals("The second show created views", createdViewCount, CocoaDialogViewPool.getCreatedViewCount());
+        second.dismiss();
+    }
+
+    private CocoaDialog.Builder newBuilder(CocoaDialogStyle style, String title) {
+        return new CocoaDialog.Builder(mActivity, style)
+                .setTitle(title)
+                .setMessage("This is a message.")
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null))
+                .addAction(new CocoaDialogAction("OK", CocoaDialogActionStyle.normal, null));
+    }
+}
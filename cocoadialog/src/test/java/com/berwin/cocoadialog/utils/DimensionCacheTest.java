@@ -0,0 +1,62 @@
+package com.berwin.cocoadialog.utils;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.DisplayMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that {@link DimensionCache} is shared while the density stays the same, and recomputed for a context of
+ * another density.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26, qualifiers = "mdpi")
+public class DimensionCacheTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        DimensionCache.invalidate();
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void sharedForSameDensity() {
+        DimensionCache cache = DimensionCache.get(mContext);
+        assertSame(cache, DimensionCache.get(mContext));
+        assertEquals(16, cache.dip2px(16));
+    }
+
+    @Test
+    public void recomputedForContextOfAnotherDensity() {
+        assertEquals(16, DimensionCache.get(mContext).dip2px(16));
+
+        Configuration configuration = new Configuration(mContext.getResources().getConfiguration());
+        configuration.densityDpi = DisplayMetrics.DENSITY_XXHIGH;
+        Context xxhdpiContext = mContext.createConfigurationContext(configuration);
+        DimensionCache cache = DimensionCache.get(xxhdpiContext);
+        assertEquals(3f, cache.getDensity(), 0f);
+        assertEquals(48, cache.dip2px(16));
+        assertEquals(62, cache.dip2px(20.5f));
+
+        // 回到原密度的上下文时同样重新计算
+        assertEquals(16, DimensionCache.get(mContext).dip2px(16));
+    }
+
+    @Test
+    public void recomputedAfterDensityChange() {
+        assertEquals(10, DimensionCache.get(mContext).dip2px(10));
+        RuntimeEnvironment.setQualifiers("xhdpi");
+        assertEquals(20, DimensionCache.get(mContext).dip2px(10));
+    }
+}
@@ -0,0 +1,111 @@
+package com.berwin.cocoadialog.utils;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+
+import com.berwin.cocoadialog.CocoaDialog;
+import com.berwin.cocoadialog.CocoaDialogAction;
+import com.berwin.cocoadialog.CocoaDialogActionStyle;
+import com.berwin.cocoadialog.CocoaDialogStyle;
+import com.berwin.cocoadialog.CocoaDialogViewPool;
+import com.berwin.cocoadialog.CountingActivity;
+import com.berwin.cocoadialog.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link DrawableCache} parses each background resource once and hands out copies which can be changed
+ * independently, with a separate cache for each resource configuration.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 26)
+public class DrawableCacheTest {
+
+    private static final int[] BACKGROUNDS = {
+            R.drawable.cocoa_dialog_corner_radius,
+            R.drawable.cocoa_dialog_top_radius,
+            R.drawable.cocoa_dialog_bottom_radius,
+            R.drawable.cocoa_dialog_bottom_left_radius,
+            R.drawable.cocoa_dialog_bottom_right_radius
+    };
+
+    private CountingActivity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(CountingActivity.class).setup().get();
+        DrawableCache.invalidate();
+        CocoaDialogViewPool.clear(mActivity);
+        mActivity.resetCounts();
+    }
+
+    @Test
+    public void largeActionSheetLoadsEachBackgroundOnce() {
+        CocoaDialog.Builder builder = new CocoaDialog.Builder(mActivity, CocoaDialogStyle.actionSheet)
+                .setTitle("Title for CocoaDialog")
+                .setMessage("This is a message.")
+                .addAction(new CocoaDialogAction("Cancel", CocoaDialogActionStyle.cancel, null));
+        for (int i = 1; i < 20; i++) {
+            builder.addAction(new CocoaDialogAction("Action " + i, CocoaDialogActionStyle.normal, null));
+        }
+        CocoaDialog dialog = builder.build();
+        dialog.show();
+        int loads = mActivity.getDrawableLoadCount(BACKGROUNDS);
+        assertTrue(loads + " background drawables loaded for 20 actions", loads <= BACKGROUNDS.length);
+        for (int resId : BACKGROUNDS) {
+            assertTrue("Background loaded more than once", mActivity.getDrawableLoadCount(resId) <= 1);
+        }
+        dialog.dismiss();
+
+        // 再次显示时全部来自缓存
+        mActivity.resetCounts();
+        builder.build().show();
+        assertEquals(0, mActivity.getDrawableLoadCount(BACKGROUNDS));
+    }
+
+    @Test
+    public void copiesMutateIndependently() {
+        DrawableCache cache = DrawableCache.get(mActivity);
+        Drawable first = cache.getDrawable(R.drawable.cocoa_dialog_corner_radius);
+        Drawable second = cache.getDrawable(R.drawable.cocoa_dialog_corner_radius);
+        assertEquals(1, mActivity.getDrawableLoadCount(R.drawable.cocoa_dialog_corner_radius));
+        assertNotSame(first, second);
+        assertTrue(first instanceof GradientDrawable);
+
+        // mutate后的副本各自持有状态，修改一个不影响另一个及之后的副本
+        ((GradientDrawable) first).setColor(Color.RED);
+        Drawable third = cache.getDrawable(R.drawable.cocoa_dialog_corner_radius);
+        assertEquals(Color.WHITE, ((GradientDrawable) second).getColor().getDefaultColor());
+        assertEquals(Color.WHITE, ((GradientDrawable) third).getColor().getDefaultColor());
+        assertEquals(1, mActivity.getDrawableLoadCount(R.drawable.cocoa_dialog_corner_radius));
+    }
+
+    @Test
+    public void separateCachePerConfiguration() {
+        DrawableCache cache = DrawableCache.get(mActivity);
+        assertSame(cache, DrawableCache.get(mActivity));
+        assertSame(cache, DrawableCache.get(mActivity.createConfigurationContext(mActivity.getResources().getConfiguration())));
+
+        // 覆盖了屏幕密度的Context使用自身的资源解析
+        Configuration configuration = new Configuration(mActivity.getResources().getConfiguration());
+        configuration.densityDpi = configuration.densityDpi * 2;
+        Context denser = mActivity.createConfigurationContext(configuration);
+        DrawableCache denserCache = DrawableCache.get(denser);
+        assertNotSame(cache, denserCache);
+        assertSame(denserCache, DrawableCache.get(denser));
+        assertSame(cache, DrawableCache.get(mActivity));
+    }
+}